@@ -1,10 +1,14 @@
 package me.medev.billingservice;
 
+import me.medev.common.jpa.IdSequenceAligner;
+import me.medev.common.web.NdjsonExporter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.context.annotation.Import;
 
 @SpringBootApplication
+@Import({IdSequenceAligner.class, NdjsonExporter.class})
 @EnableFeignClients
 public class BillingServiceApplication {
 
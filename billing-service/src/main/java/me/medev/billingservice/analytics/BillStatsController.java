@@ -0,0 +1,41 @@
+package me.medev.billingservice.analytics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/bills/stats")
+public class BillStatsController {
+
+    @Autowired
+    private BillingAnalyticsService billingAnalyticsService;
+
+    @GetMapping("/customers/{customerId}")
+    public CustomerRevenue getCustomerRevenue(@PathVariable Long customerId) {
+        return billingAnalyticsService.customerRevenue(customerId)
+                .orElse(new CustomerRevenue(customerId, 0L, BigDecimal.ZERO));
+    }
+
+    @GetMapping("/products/{productId}")
+    public ProductRevenue getProductRevenue(@PathVariable Long productId) {
+        return billingAnalyticsService.productRevenue(productId)
+                .orElse(new ProductRevenue(productId, 0L, 0L, BigDecimal.ZERO));
+    }
+
+    @GetMapping("/revenue")
+    public ResponseEntity<List<RevenueBucket>> getRevenue(
+            @RequestParam(defaultValue = "DAY") Granularity granularity,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(billingAnalyticsService.revenue(granularity, from, to));
+    }
+}
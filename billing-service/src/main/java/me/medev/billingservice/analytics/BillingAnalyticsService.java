@@ -0,0 +1,175 @@
+package me.medev.billingservice.analytics;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import me.medev.billingservice.entity.Bill;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Maintains revenue rollups per customer, per product and per day/month. Every bill
+ * written or deleted adjusts the affected rows with atomic upserts in the same transaction,
+ * so reads are primary-key lookups whatever the number of bills. Rows whose last bill was
+ * deleted are removed rather than left at zero.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BillingAnalyticsService {
+
+    private static final String UPSERT_CUSTOMER = """
+            INSERT INTO customer_revenue (customer_id, bill_count, total_amount) VALUES (?, ?, ?)
+            ON CONFLICT (customer_id) DO UPDATE SET
+                bill_count = customer_revenue.bill_count + EXCLUDED.bill_count,
+                total_amount = customer_revenue.total_amount + EXCLUDED.total_amount""";
+
+    private static final String UPSERT_PRODUCT = """
+            INSERT INTO product_revenue (product_id, bill_count, total_quantity, total_amount) VALUES (?, ?, ?, ?)
+            ON CONFLICT (product_id) DO UPDATE SET
+                bill_count = product_revenue.bill_count + EXCLUDED.bill_count,
+                total_quantity = product_revenue.total_quantity + EXCLUDED.total_quantity,
+                total_amount = product_revenue.total_amount + EXCLUDED.total_amount""";
+
+    private static final String UPSERT_BUCKET = """
+            INSERT INTO revenue_buckets (granularity, bucket_start, bill_count, total_amount) VALUES (?, ?, ?, ?)
+            ON CONFLICT (granularity, bucket_start) DO UPDATE SET
+                bill_count = revenue_buckets.bill_count + EXCLUDED.bill_count,
+                total_amount = revenue_buckets.total_amount + EXCLUDED.total_amount""";
+
+    // A customer or product whose last bill was deleted reads the same as one that never had any
+    private static final String DELETE_EMPTY_CUSTOMER = "DELETE FROM customer_revenue WHERE customer_id = ? AND bill_count <= 0";
+    private static final String DELETE_EMPTY_PRODUCT = "DELETE FROM product_revenue WHERE product_id = ? AND bill_count <= 0";
+    private static final String DELETE_EMPTY_BUCKET =
+            "DELETE FROM revenue_buckets WHERE granularity = ? AND bucket_start = ? AND bill_count <= 0";
+
+    private static final String ROLLUPS = "billing_rollups";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CustomerRevenueRepository customerRevenueRepository;
+    private final ProductRevenueRepository productRevenueRepository;
+    private final RevenueBucketRepository revenueBucketRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(Collection<Bill> bills) {
+        apply(bills, 1);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(Bill bill) {
+        apply(List.of(bill), -1);
+    }
+
+    public Optional<CustomerRevenue> customerRevenue(Long customerId) {
+        return customerRevenueRepository.findById(customerId);
+    }
+
+    public Optional<ProductRevenue> productRevenue(Long productId) {
+        return productRevenueRepository.findById(productId);
+    }
+
+    public List<RevenueBucket> revenue(Granularity granularity, LocalDate from, LocalDate to) {
+        return revenueBucketRepository.findByGranularityAndBucketStartBetweenOrderByBucketStart(
+                granularity, granularity.bucketOf(from), granularity.bucketOf(to));
+    }
+
+    /**
+     * Builds the rollups from the bills table once, e.g. on the first start after this module
+     * was added, and records that in {@code rollup_state}. Rows written before it ran, such as
+     * a bill deleted while the rollups were still empty, are replaced.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfill() {
+        if (isBuilt()) {
+            return;
+        }
+        // Blocks bill writes until the rebuild commits, so none is counted twice or missed
+        jdbcTemplate.execute("LOCK TABLE bills IN SHARE MODE");
+        if (isBuilt()) {
+            return;
+        }
+        jdbcTemplate.execute("DELETE FROM customer_revenue");
+        jdbcTemplate.execute("DELETE FROM product_revenue");
+        jdbcTemplate.execute("DELETE FROM revenue_buckets");
+        jdbcTemplate.update("""
+                INSERT INTO customer_revenue (customer_id, bill_count, total_amount)
+                SELECT customer_id, count(*), sum(total_amount) FROM bills GROUP BY customer_id""");
+        jdbcTemplate.update("""
+                INSERT INTO product_revenue (product_id, bill_count, total_quantity, total_amount)
+                SELECT product_id, count(*), sum(quantity), sum(total_amount) FROM bills GROUP BY product_id""");
+        for (Granularity granularity : Granularity.values()) {
+            jdbcTemplate.update("""
+                    INSERT INTO revenue_buckets (granularity, bucket_start, bill_count, total_amount)
+                    SELECT ?, CAST(date_trunc(?, created_at) AS date), count(*), sum(total_amount)
+                    FROM bills GROUP BY 2""", granularity.name(), granularity.name().toLowerCase());
+        }
+        jdbcTemplate.update("INSERT INTO rollup_state (name, built_at) VALUES (?, now())", ROLLUPS);
+        log.info("Billing rollups rebuilt from existing bills");
+    }
+
+    private boolean isBuilt() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM rollup_state WHERE name = ?)", Boolean.class, ROLLUPS));
+    }
+
+    private void apply(Collection<Bill> bills, int sign) {
+        // Sorted keys keep row lock order stable across concurrent transactions
+        Map<Long, Delta> customers = new TreeMap<>();
+        Map<Long, Delta> products = new TreeMap<>();
+        Map<RevenueBucket.Key, Delta> buckets = new TreeMap<>(
+                Comparator.comparing(RevenueBucket.Key::getGranularity).thenComparing(RevenueBucket.Key::getBucketStart));
+
+        for (Bill bill : bills) {
+            customers.computeIfAbsent(bill.getCustomerId(), id -> new Delta()).add(bill, sign);
+            products.computeIfAbsent(bill.getProductId(), id -> new Delta()).add(bill, sign);
+            LocalDate day = bill.getCreatedAt().toLocalDate();
+            for (Granularity granularity : Granularity.values()) {
+                buckets.computeIfAbsent(new RevenueBucket.Key(granularity, granularity.bucketOf(day)), key -> new Delta())
+                        .add(bill, sign);
+            }
+        }
+
+        List<Object[]> customerRows = new ArrayList<>();
+        customers.forEach((id, delta) -> customerRows.add(new Object[]{id, delta.count, delta.amount}));
+        List<Object[]> productRows = new ArrayList<>();
+        products.forEach((id, delta) -> productRows.add(new Object[]{id, delta.count, delta.quantity, delta.amount}));
+        List<Object[]> bucketRows = new ArrayList<>();
+        buckets.forEach((key, delta) -> bucketRows.add(
+                new Object[]{key.getGranularity().name(), key.getBucketStart(), delta.count, delta.amount}));
+
+        jdbcTemplate.batchUpdate(UPSERT_CUSTOMER, customerRows);
+        jdbcTemplate.batchUpdate(UPSERT_PRODUCT, productRows);
+        jdbcTemplate.batchUpdate(UPSERT_BUCKET, bucketRows);
+        if (sign < 0) {
+            jdbcTemplate.batchUpdate(DELETE_EMPTY_CUSTOMER, customerRows.stream().map(row -> new Object[]{row[0]}).toList());
+            jdbcTemplate.batchUpdate(DELETE_EMPTY_PRODUCT, productRows.stream().map(row -> new Object[]{row[0]}).toList());
+            jdbcTemplate.batchUpdate(DELETE_EMPTY_BUCKET, bucketRows.stream().map(row -> new Object[]{row[0], row[1]}).toList());
+        }
+    }
+
+    private static final class Delta {
+        private long count;
+        private long quantity;
+        private BigDecimal amount = BigDecimal.ZERO;
+
+        void add(Bill bill, int sign) {
+            count += sign;
+            quantity += (long) sign * bill.getQuantity();
+            amount = amount.add(sign > 0 ? bill.getTotalAmount() : bill.getTotalAmount().negate());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package me.medev.billingservice.analytics;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Entity
+@Table(name = "customer_revenue")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerRevenue {
+
+    @Id
+    private Long customerId;
+
+    @Column(nullable = false)
+    private Long billCount;
+
+    @Column(nullable = false)
+    private BigDecimal totalAmount;
+}
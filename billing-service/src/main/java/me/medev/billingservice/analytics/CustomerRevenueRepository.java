@@ -0,0 +1,8 @@
+package me.medev.billingservice.analytics;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CustomerRevenueRepository extends JpaRepository<CustomerRevenue, Long> {
+}
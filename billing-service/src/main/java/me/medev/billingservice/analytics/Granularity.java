@@ -0,0 +1,12 @@
+package me.medev.billingservice.analytics;
+
+import java.time.LocalDate;
+
+public enum Granularity {
+    DAY,
+    MONTH;
+
+    public LocalDate bucketOf(LocalDate date) {
+        return this == DAY ? date : date.withDayOfMonth(1);
+    }
+}
@@ -0,0 +1,28 @@
+package me.medev.billingservice.analytics;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Entity
+@Table(name = "product_revenue")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductRevenue {
+
+    @Id
+    private Long productId;
+
+    @Column(nullable = false)
+    private Long billCount;
+
+    @Column(nullable = false)
+    private Long totalQuantity;
+
+    @Column(nullable = false)
+    private BigDecimal totalAmount;
+}
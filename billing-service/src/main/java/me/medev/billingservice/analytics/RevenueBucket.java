@@ -0,0 +1,40 @@
+package me.medev.billingservice.analytics;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "revenue_buckets")
+@IdClass(RevenueBucket.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevenueBucket {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    private Granularity granularity;
+
+    @Id
+    private LocalDate bucketStart;
+
+    @Column(nullable = false)
+    private Long billCount;
+
+    @Column(nullable = false)
+    private BigDecimal totalAmount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Granularity granularity;
+        private LocalDate bucketStart;
+    }
+}
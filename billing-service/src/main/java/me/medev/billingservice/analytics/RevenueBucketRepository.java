@@ -0,0 +1,13 @@
+package me.medev.billingservice.analytics;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface RevenueBucketRepository extends JpaRepository<RevenueBucket, RevenueBucket.Key> {
+    List<RevenueBucket> findByGranularityAndBucketStartBetweenOrderByBucketStart(
+            Granularity granularity, LocalDate from, LocalDate to);
+}
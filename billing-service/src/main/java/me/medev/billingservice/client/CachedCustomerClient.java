@@ -0,0 +1,39 @@
+package me.medev.billingservice.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import me.medev.billingservice.dto.CustomerDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Near-cache over {@link CustomerServiceClient}.
+ */
+@Component
+public class CachedCustomerClient {
+
+    private final CustomerServiceClient customerServiceClient;
+    private final NearCache<Long, CustomerDto> cache;
+
+    public CachedCustomerClient(CustomerServiceClient customerServiceClient,
+                                MeterRegistry registry,
+                                @Value("${billing.client-cache.customers.ttl:10m}") Duration ttl,
+                                @Value("${billing.client-cache.customers.max-size:10000}") int maxSize) {
+        this.customerServiceClient = customerServiceClient;
+        this.cache = new NearCache<>("customers", customerServiceClient::getCustomerById, ttl, maxSize, registry);
+    }
+
+    public CustomerDto getCustomerById(Long id) {
+        return cache.get(id);
+    }
+
+    /**
+     * Resolves {@code ids} with one batch call for whatever is not cached; unknown IDs are left out.
+     */
+    public Map<Long, CustomerDto> getCustomersByIds(Collection<Long> ids) {
+        return cache.getAll(ids, missing -> customerServiceClient.getCustomersByIds(missing).getFound());
+    }
+}
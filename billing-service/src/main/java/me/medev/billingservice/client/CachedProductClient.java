@@ -0,0 +1,52 @@
+package me.medev.billingservice.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import me.medev.billingservice.dto.ProductDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Near-cache over {@link ProductServiceClient}. Display lookups accept entries up to the TTL,
+ * while lookups used to price a bill accept them only up to
+ * {@code billing.client-cache.products.price-max-staleness}.
+ */
+@Component
+public class CachedProductClient {
+
+    private final ProductServiceClient productServiceClient;
+    private final NearCache<Long, ProductDto> cache;
+    private final Duration priceMaxStaleness;
+
+    public CachedProductClient(ProductServiceClient productServiceClient,
+                               MeterRegistry registry,
+                               @Value("${billing.client-cache.products.ttl:5m}") Duration ttl,
+                               @Value("${billing.client-cache.products.max-size:10000}") int maxSize,
+                               @Value("${billing.client-cache.products.price-max-staleness:30s}") Duration priceMaxStaleness) {
+        this.productServiceClient = productServiceClient;
+        this.cache = new NearCache<>("products", productServiceClient::getProductById, ttl, maxSize, registry);
+        this.priceMaxStaleness = priceMaxStaleness;
+    }
+
+    public ProductDto getProductById(Long id) {
+        return cache.get(id);
+    }
+
+    public ProductDto getProductForPricing(Long id) {
+        return cache.get(id, priceMaxStaleness);
+    }
+
+    /**
+     * Resolves {@code ids} with one batch call for whatever is not cached; unknown IDs are left out.
+     */
+    public Map<Long, ProductDto> getProductsByIds(Collection<Long> ids) {
+        return cache.getAll(ids, missing -> productServiceClient.getProductsByIds(missing).getFound());
+    }
+
+    public Map<Long, ProductDto> getProductsForPricing(Collection<Long> ids) {
+        return cache.getAll(ids, priceMaxStaleness, missing -> productServiceClient.getProductsByIds(missing).getFound());
+    }
+}
@@ -1,13 +1,21 @@
 package me.medev.billingservice.client;
 
 import me.medev.billingservice.dto.CustomerDto;
+import me.medev.common.dto.BatchLookupResponse;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.Collection;
 
 @FeignClient(name = "customer-service")
 public interface CustomerServiceClient {
 
     @GetMapping("/api/customers/{id}")
     CustomerDto getCustomerById(@PathVariable("id") Long id);
+
+    @PostMapping("/api/customers/batch")
+    BatchLookupResponse<CustomerDto> getCustomersByIds(@RequestBody Collection<Long> ids);
 }
\ No newline at end of file
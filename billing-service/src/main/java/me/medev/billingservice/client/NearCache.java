@@ -0,0 +1,192 @@
+package me.medev.billingservice.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Small in-process cache in front of a remote lookup. Entries expire after a TTL, the least
+ * recently used are evicted beyond {@code maxSize}, and concurrent misses for the same key
+ * share a single remote call. Failed lookups are not cached.
+ */
+class NearCache<K, V> {
+
+    private final Function<K, V> loader;
+    private final long ttlNanos;
+    private final int maxSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    NearCache(String name, Function<K, V> loader, Duration ttl, int maxSize, MeterRegistry registry) {
+        this.loader = loader;
+        this.ttlNanos = ttl.toNanos();
+        this.maxSize = maxSize;
+        this.hits = Counter.builder("billing.client.cache").tag("cache", name).tag("result", "hit").register(registry);
+        this.misses = Counter.builder("billing.client.cache").tag("cache", name).tag("result", "miss").register(registry);
+        this.coalesced = Counter.builder("billing.client.cache").tag("cache", name).tag("result", "coalesced").register(registry);
+        Gauge.builder("billing.client.cache.size", this, NearCache::size).tag("cache", name).register(registry);
+        Gauge.builder("billing.client.cache.hit.ratio", this, NearCache::hitRatio).tag("cache", name).register(registry);
+    }
+
+    V get(K key) {
+        return get(key, ttlNanos);
+    }
+
+    /**
+     * Returns the cached value if it is younger than {@code maxAge} (and the TTL), loading it otherwise.
+     */
+    V get(K key, Duration maxAge) {
+        return get(key, Math.min(ttlNanos, maxAge.toNanos()));
+    }
+
+    /**
+     * Returns the cached values of {@code keys} and loads every miss with one call to
+     * {@code batchLoader}. Keys the loader does not return are absent from the result.
+     * Batch loads are not coalesced with concurrent single-key loads.
+     */
+    Map<K, V> getAll(Collection<K> keys, Function<List<K>, Map<K, V>> batchLoader) {
+        return getAll(keys, ttlNanos, batchLoader);
+    }
+
+    /**
+     * Like {@link #getAll(Collection, Function)}, accepting cached values only up to {@code maxAge}.
+     */
+    Map<K, V> getAll(Collection<K> keys, Duration maxAge, Function<List<K>, Map<K, V>> batchLoader) {
+        return getAll(keys, Math.min(ttlNanos, maxAge.toNanos()), batchLoader);
+    }
+
+    private Map<K, V> getAll(Collection<K> keys, long maxAgeNanos, Function<List<K>, Map<K, V>> batchLoader) {
+        Map<K, V> result = new LinkedHashMap<>();
+        List<K> missing = new ArrayList<>();
+        for (K key : keys) {
+            V cached = lookup(key, maxAgeNanos);
+            if (cached != null) {
+                result.put(key, cached);
+            } else {
+                missing.add(key);
+            }
+        }
+        hits.increment(result.size());
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        misses.increment(missing.size());
+        Map<K, V> loaded = batchLoader.apply(missing);
+        if (loaded == null) {
+            return result;
+        }
+        for (K key : missing) {
+            V value = loaded.get(key);
+            if (value != null) {
+                store(key, value);
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    private V get(K key, long maxAgeNanos) {
+        V cached = lookup(key, maxAgeNanos);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> pending = inFlight.putIfAbsent(key, load);
+        if (pending != null) {
+            coalesced.increment();
+            try {
+                return pending.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        misses.increment();
+        try {
+            V value = loader.apply(key);
+            store(key, value);
+            load.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+
+    private V lookup(K key, long maxAgeNanos) {
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            long age = System.nanoTime() - entry.loadedAt();
+            if (age > ttlNanos) {
+                entries.remove(key);
+                return null;
+            }
+            return age > maxAgeNanos ? null : entry.value();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(K key, V value) {
+        if (value == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            entries.put(key, new Entry<>(value, System.nanoTime()));
+            Iterator<K> eldest = entries.keySet().iterator();
+            while (entries.size() > maxSize && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double hitRatio() {
+        double hit = hits.count() + coalesced.count();
+        double total = hit + misses.count();
+        return total == 0 ? 0 : hit / total;
+    }
+
+    private record Entry<V>(V value, long loadedAt) {
+    }
+}
@@ -1,13 +1,49 @@
 package me.medev.billingservice.client;
 
 import me.medev.billingservice.dto.ProductDto;
+import me.medev.billingservice.dto.StockRequest;
+import me.medev.common.dto.BatchLookupResponse;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.Collection;
+import java.util.List;
 
 @FeignClient(name = "inventory-service")
 public interface ProductServiceClient {
 
     @GetMapping("/api/products/{id}")
     ProductDto getProductById(@PathVariable("id") Long id);
+
+    @PostMapping("/api/products/batch")
+    BatchLookupResponse<ProductDto> getProductsByIds(@RequestBody Collection<Long> ids);
+
+    /**
+     * Fails with a 409 when fewer than {@code quantity} units are in stock. Repeating the call
+     * with the same {@code reservationId} does not take stock twice.
+     */
+    @PostMapping("/api/products/{id}/reserve")
+    void reserveStock(@PathVariable("id") Long id, @RequestParam("quantity") int quantity,
+                      @RequestParam("reservationId") String reservationId);
+
+    /**
+     * Gives back what {@code reservationId} reserved, at most once; after it, a late
+     * reservation with that ID takes nothing.
+     */
+    @PostMapping("/api/products/{id}/release")
+    void releaseStock(@PathVariable("id") Long id, @RequestParam("quantity") int quantity,
+                      @RequestParam("reservationId") String reservationId);
+
+    /**
+     * Returns one of RESERVED, INSUFFICIENT_STOCK, NOT_FOUND or RELEASED per request, in order.
+     */
+    @PostMapping("/api/products/reserve")
+    List<String> reserveStock(@RequestBody List<StockRequest> requests);
+
+    @PostMapping("/api/products/release")
+    void releaseStock(@RequestBody List<StockRequest> requests);
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package me.medev.billingservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class EnrichmentConfig {
+
+    /**
+     * Pool running the customer/product lookups of a bill concurrently. Its queue is bounded
+     * and rejects when full, so a slow downstream makes lookups fail fast instead of queueing
+     * behind calls that are still waiting for their Feign read timeout.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService enrichmentExecutor(@Value("${billing.enrichment.threads:16}") int threads,
+                                              @Value("${billing.enrichment.queue-capacity:64}") int queueCapacity) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "bill-enrichment-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -1,20 +1,34 @@
 package me.medev.billingservice.controller;
 
-import me.medev.billingservice.client.CustomerServiceClient;
-import me.medev.billingservice.client.ProductServiceClient;
-import me.medev.billingservice.dto.CustomerDto;
+import me.medev.billingservice.client.CachedCustomerClient;
+import me.medev.billingservice.client.CachedProductClient;
+import me.medev.billingservice.dto.BatchCreateResponse;
+import me.medev.billingservice.dto.BillView;
 import me.medev.billingservice.dto.ProductDto;
+import me.medev.billingservice.dto.StockRequest;
 import me.medev.billingservice.entity.Bill;
 import me.medev.billingservice.repository.BillRepository;
+import me.medev.billingservice.service.BillBatchService;
+import me.medev.billingservice.service.BillEnrichmentService;
+import me.medev.billingservice.service.BillService;
+import me.medev.billingservice.service.StockReservationService;
+import me.medev.common.dto.KeysetPage;
+import me.medev.common.web.NdjsonExporter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/bills")
@@ -24,41 +38,63 @@ public class BillController {
     private BillRepository billRepository;
 
     @Autowired
-    private CustomerServiceClient customerServiceClient;
+    private CachedCustomerClient customerClient;
 
     @Autowired
-    private ProductServiceClient productServiceClient;
+    private CachedProductClient productClient;
+
+    @Autowired
+    private BillEnrichmentService billEnrichmentService;
+
+    @Autowired
+    private BillService billService;
+
+    @Autowired
+    private BillBatchService billBatchService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private NdjsonExporter ndjsonExporter;
+
+    @Value("${billing.listing.max-page-size:100}")
+    private int maxPageSize;
 
     @GetMapping
     public List<Bill> getAllBills() {
         return billRepository.findAll();
     }
 
-    @GetMapping("/{id}")
-    public ResponseEntity<Map<String, Object>> getBillById(@PathVariable Long id) {
-        Optional<Bill> billOpt = billRepository.findById(id);
-        if (billOpt.isPresent()) {
-            Bill bill = billOpt.get();
-            Map<String, Object> response = new HashMap<>();
-            response.put("bill", bill);
+    @GetMapping(params = {"limit", "!expand"})
+    public KeysetPage<Bill> getBillsAfter(@RequestParam(defaultValue = "0") Long after,
+                                          @RequestParam int limit) {
+        int size = Math.min(Math.max(limit, 1), maxPageSize);
+        List<Bill> items = billRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(size + 1));
+        if (items.size() <= size) {
+            return new KeysetPage<>(items, null);
+        }
+        items = items.subList(0, size);
+        return new KeysetPage<>(items, items.get(size - 1).getId());
+    }
 
-            try {
-                CustomerDto customer = customerServiceClient.getCustomerById(bill.getCustomerId());
-                response.put("customer", customer);
-            } catch (Exception e) {
-                response.put("customerError", "Could not fetch customer details");
-            }
+    @GetMapping(value = "/export", produces = NdjsonExporter.NDJSON)
+    public StreamingResponseBody exportBills() {
+        return ndjsonExporter.export(billRepository::streamAllOrderById);
+    }
 
-            try {
-                ProductDto product = productServiceClient.getProductById(bill.getProductId());
-                response.put("product", product);
-            } catch (Exception e) {
-                response.put("productError", "Could not fetch product details");
-            }
+    @GetMapping(params = "expand")
+    public Page<BillView> getAllBillsExpanded(@RequestParam Set<String> expand,
+                                              @RequestParam(defaultValue = "0") int page,
+                                              @RequestParam(defaultValue = "20") int size) {
+        return billEnrichmentService.enrich(billRepository.findAll(pageRequest(page, size)), expand);
+    }
 
-            return ResponseEntity.ok(response);
-        }
-        return ResponseEntity.notFound().build();
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> getBillById(@PathVariable Long id) {
+        return billRepository.findById(id)
+                .map(bill -> ResponseEntity.ok(billEnrichmentService.enrich(bill)))
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/customer/{customerId}")
@@ -66,29 +102,57 @@ public class BillController {
         return billRepository.findByCustomerId(customerId);
     }
 
+    @GetMapping(value = "/customer/{customerId}", params = "expand")
+    public Page<BillView> getBillsByCustomerExpanded(@PathVariable Long customerId,
+                                                     @RequestParam Set<String> expand,
+                                                     @RequestParam(defaultValue = "0") int page,
+                                                     @RequestParam(defaultValue = "20") int size) {
+        return billEnrichmentService.enrich(billRepository.findByCustomerId(customerId, pageRequest(page, size)), expand);
+    }
+
     @PostMapping
     public ResponseEntity<Bill> createBill(@RequestBody Bill bill) {
         try {
             // Fetch product to calculate total
-            ProductDto product = productServiceClient.getProductById(bill.getProductId());
+            ProductDto product = productClient.getProductForPricing(bill.getProductId());
             BigDecimal totalAmount = product.getPrice().multiply(new BigDecimal(bill.getQuantity()));
             bill.setTotalAmount(totalAmount);
 
             // Verify customer exists
-            customerServiceClient.getCustomerById(bill.getCustomerId());
+            customerClient.getCustomerById(bill.getCustomerId());
 
-            return ResponseEntity.ok(billRepository.save(bill));
+            StockRequest stock = StockReservationService.request(bill.getProductId(), bill.getQuantity());
+            if (!stockReservationService.reserve(stock)) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+            try {
+                return ResponseEntity.ok(billService.create(bill));
+            } catch (RuntimeException e) {
+                stockReservationService.release(List.of(stock));
+                throw e;
+            }
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<BatchCreateResponse> createBills(@RequestBody List<Bill> bills) {
+        if (bills.size() > BillBatchService.MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(billBatchService.createAll(bills));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteBill(@PathVariable Long id) {
-        if (billRepository.existsById(id)) {
-            billRepository.deleteById(id);
+        if (billService.delete(id)) {
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.notFound().build();
     }
+
+    private PageRequest pageRequest(int page, int size) {
+        return PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), maxPageSize), Sort.by("id"));
+    }
 }
\ No newline at end of file
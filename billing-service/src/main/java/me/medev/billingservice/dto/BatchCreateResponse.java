@@ -0,0 +1,24 @@
+package me.medev.billingservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import me.medev.billingservice.entity.Bill;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchCreateResponse {
+    private List<Bill> created;
+    private List<ItemError> errors;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemError {
+        private int index;
+        private String message;
+    }
+}
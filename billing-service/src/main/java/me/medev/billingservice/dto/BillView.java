@@ -0,0 +1,32 @@
+package me.medev.billingservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import me.medev.billingservice.entity.Bill;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BillView {
+    private Long id;
+    private Long customerId;
+    private Long productId;
+    private Integer quantity;
+    private BigDecimal totalAmount;
+    private LocalDateTime createdAt;
+    private CustomerDto customer;
+    private ProductDto product;
+
+    public BillView(Bill bill) {
+        this.id = bill.getId();
+        this.customerId = bill.getCustomerId();
+        this.productId = bill.getProductId();
+        this.quantity = bill.getQuantity();
+        this.totalAmount = bill.getTotalAmount();
+        this.createdAt = bill.getCreatedAt();
+    }
+}
@@ -0,0 +1,15 @@
+package me.medev.billingservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockRequest {
+    private Long productId;
+    private Integer quantity;
+    /** Idempotency key: inventory-service reserves and releases it at most once. */
+    private String reservationId;
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import me.medev.common.jpa.IdAllocation;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -16,7 +17,8 @@ import java.time.LocalDateTime;
 public class Bill {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bills_seq")
+    @SequenceGenerator(name = "bills_seq", sequenceName = "bills_seq", allocationSize = IdAllocation.BLOCK_SIZE)
     private Long id;
 
     @Column(nullable = false)
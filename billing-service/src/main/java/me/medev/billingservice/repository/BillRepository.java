@@ -1,14 +1,38 @@
 package me.medev.billingservice.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import me.medev.billingservice.entity.Bill;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BillRepository extends JpaRepository<Bill, Long> {
     List<Bill> findByCustomerId(Long customerId);
 
+    Page<Bill> findByCustomerId(Long customerId, Pageable pageable);
+
     List<Bill> findByProductId(Long productId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Bill b where b.id = :id")
+    Optional<Bill> findByIdForUpdate(@Param("id") Long id);
+
+    List<Bill> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select b from Bill b order by b.id")
+    Stream<Bill> streamAllOrderById();
 }
\ No newline at end of file
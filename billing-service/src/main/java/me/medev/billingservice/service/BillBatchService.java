@@ -0,0 +1,189 @@
+package me.medev.billingservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import me.medev.billingservice.client.CachedCustomerClient;
+import me.medev.billingservice.client.CachedProductClient;
+import me.medev.billingservice.dto.BatchCreateResponse;
+import me.medev.billingservice.dto.CustomerDto;
+import me.medev.billingservice.dto.ProductDto;
+import me.medev.billingservice.dto.StockRequest;
+import me.medev.billingservice.entity.Bill;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Creates many bills at once. Every distinct product and customer of the batch is resolved
+ * once, totals are computed in memory, stock for the valid bills is reserved in one call, and
+ * the bills that got their stock are inserted in one transaction using JDBC batches. Failed
+ * items are reported by index and do not block the others.
+ */
+@Slf4j
+@Service
+public class BillBatchService {
+
+    public static final int MAX_BATCH_SIZE = 500;
+
+    private final BillService billService;
+    private final CachedCustomerClient customerClient;
+    private final CachedProductClient productClient;
+    private final ExecutorService enrichmentExecutor;
+    private final StockReservationService stockReservationService;
+
+    public BillBatchService(BillService billService,
+                            CachedCustomerClient customerClient,
+                            CachedProductClient productClient,
+                            ExecutorService enrichmentExecutor,
+                            StockReservationService stockReservationService) {
+        this.billService = billService;
+        this.customerClient = customerClient;
+        this.productClient = productClient;
+        this.enrichmentExecutor = enrichmentExecutor;
+        this.stockReservationService = stockReservationService;
+    }
+
+    public BatchCreateResponse createAll(List<Bill> bills) {
+        Set<Long> customerIds = new LinkedHashSet<>();
+        Set<Long> productIds = new LinkedHashSet<>();
+        for (Bill bill : bills) {
+            if (bill != null && bill.getCustomerId() != null) {
+                customerIds.add(bill.getCustomerId());
+            }
+            if (bill != null && bill.getProductId() != null) {
+                productIds.add(bill.getProductId());
+            }
+        }
+
+        CompletableFuture<Map<Long, ProductDto>> productLookup = CompletableFuture.supplyAsync(
+                () -> productClient.getProductsForPricing(productIds), enrichmentExecutor);
+        Map<Long, CustomerDto> customers = resolve(() -> customerClient.getCustomersByIds(customerIds), "customers");
+        Map<Long, ProductDto> products = resolve(productLookup::join, "products");
+
+        List<Bill> valid = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+        List<BatchCreateResponse.ItemError> errors = new ArrayList<>();
+        for (int i = 0; i < bills.size(); i++) {
+            Bill bill = bills.get(i);
+            String error = validate(bill, customers, products);
+            if (error != null) {
+                errors.add(new BatchCreateResponse.ItemError(i, error));
+                continue;
+            }
+            ProductDto product = products.get(bill.getProductId());
+            bill.setId(null);
+            if (bill.getCreatedAt() == null) {
+                bill.setCreatedAt(LocalDateTime.now());
+            }
+            bill.setTotalAmount(product.getPrice().multiply(new BigDecimal(bill.getQuantity())));
+            valid.add(bill);
+            validIndexes.add(i);
+        }
+
+        List<StockRequest> requests = new ArrayList<>(valid.size());
+        for (Bill bill : valid) {
+            requests.add(StockReservationService.request(bill.getProductId(), bill.getQuantity()));
+        }
+        List<String> reservations = valid.isEmpty() ? List.of() : reserve(requests);
+
+        List<Bill> reserved = new ArrayList<>();
+        List<StockRequest> reservedStock = new ArrayList<>();
+        for (int i = 0; i < valid.size(); i++) {
+            Bill bill = valid.get(i);
+            String reservation = reservations == null ? null : reservations.get(i);
+            if (StockReservationService.RESERVED.equals(reservation)) {
+                reserved.add(bill);
+                reservedStock.add(requests.get(i));
+            } else {
+                errors.add(new BatchCreateResponse.ItemError(validIndexes.get(i), stockError(bill, reservation)));
+            }
+        }
+        errors.sort(Comparator.comparingInt(BatchCreateResponse.ItemError::getIndex));
+
+        if (reserved.isEmpty()) {
+            return new BatchCreateResponse(List.of(), errors);
+        }
+        try {
+            return new BatchCreateResponse(billService.createAll(reserved), errors);
+        } catch (RuntimeException e) {
+            stockReservationService.release(reservedStock);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the reservation results, or {@code null} when inventory-service could not be
+     * reached or gave no usable answer; the requests have then been released.
+     */
+    private List<String> reserve(List<StockRequest> requests) {
+        try {
+            return stockReservationService.reserveAll(requests);
+        } catch (Exception e) {
+            log.warn("Could not reserve stock for a bill batch", e);
+            return null;
+        }
+    }
+
+    private static String stockError(Bill bill, String reservation) {
+        if (StockReservationService.INSUFFICIENT_STOCK.equals(reservation)) {
+            return "Insufficient stock for product " + bill.getProductId();
+        }
+        if (StockReservationService.NOT_FOUND.equals(reservation)) {
+            return "Product " + bill.getProductId() + " not found";
+        }
+        return "Could not reserve stock for product " + bill.getProductId();
+    }
+
+    private static String validate(Bill bill, Map<Long, CustomerDto> customers, Map<Long, ProductDto> products) {
+        if (bill == null) {
+            return "Bill is missing";
+        }
+        if (bill.getCustomerId() == null) {
+            return "customerId is required";
+        }
+        if (bill.getProductId() == null) {
+            return "productId is required";
+        }
+        if (bill.getQuantity() == null || bill.getQuantity() <= 0) {
+            return "quantity must be positive";
+        }
+        if (customers == null) {
+            return "Could not verify customer " + bill.getCustomerId();
+        }
+        if (!customers.containsKey(bill.getCustomerId())) {
+            return "Customer " + bill.getCustomerId() + " not found";
+        }
+        if (products == null) {
+            return "Could not fetch product " + bill.getProductId();
+        }
+        ProductDto product = products.get(bill.getProductId());
+        if (product == null) {
+            return "Product " + bill.getProductId() + " not found";
+        }
+        if (product.getPrice() == null) {
+            return "Product " + bill.getProductId() + " has no price";
+        }
+        return null;
+    }
+
+    /**
+     * Returns the lookup result, or {@code null} when the remote service could not be reached.
+     */
+    private static <T> Map<Long, T> resolve(Supplier<Map<Long, T>> lookup, String what) {
+        try {
+            return lookup.get();
+        } catch (Exception e) {
+            log.warn("Could not resolve {} for a bill batch", what, e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package me.medev.billingservice.service;
+
+import me.medev.billingservice.client.CachedCustomerClient;
+import me.medev.billingservice.client.CachedProductClient;
+import me.medev.billingservice.dto.BillView;
+import me.medev.billingservice.dto.CustomerDto;
+import me.medev.billingservice.dto.ProductDto;
+import me.medev.billingservice.entity.Bill;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Attaches customer and product details to bills. Lookups run concurrently and share one
+ * timeout budget, so a bill costs the slower of its calls rather than their sum. A lookup
+ * that fails, misses the deadline or finds the pool saturated is reported under its
+ * {@code *Error} key for a single bill, and left out of the view for listings.
+ * <p>
+ * Giving up on a lookup does not stop its HTTP call: the call holds its pool thread until
+ * the Feign read timeout ({@code spring.cloud.openfeign.client.config}), which is set to
+ * match {@code billing.enrichment.timeout}.
+ */
+@Service
+public class BillEnrichmentService {
+
+    private final CachedCustomerClient customerClient;
+    private final CachedProductClient productClient;
+    private final ExecutorService enrichmentExecutor;
+    private final long timeoutNanos;
+
+    public BillEnrichmentService(CachedCustomerClient customerClient,
+                                 CachedProductClient productClient,
+                                 ExecutorService enrichmentExecutor,
+                                 @Value("${billing.enrichment.timeout:3s}") Duration timeout) {
+        this.customerClient = customerClient;
+        this.productClient = productClient;
+        this.enrichmentExecutor = enrichmentExecutor;
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    public Map<String, Object> enrich(Bill bill) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        CompletableFuture<CustomerDto> customer = lookup(() -> customerClient.getCustomerById(bill.getCustomerId()));
+        CompletableFuture<ProductDto> product = lookup(() -> productClient.getProductById(bill.getProductId()));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("bill", bill);
+        put(response, "customer", await(customer, deadline), "customerError", "Could not fetch customer details");
+        put(response, "product", await(product, deadline), "productError", "Could not fetch product details");
+        return response;
+    }
+
+    /**
+     * Builds the denormalised views of a page of bills. The distinct customers and products
+     * of the page are resolved with one batch call each, and the two calls run concurrently.
+     */
+    public Page<BillView> enrich(Page<Bill> bills, Set<String> expand) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        CompletableFuture<Map<Long, CustomerDto>> customers = expand.contains("customer")
+                ? lookup(() -> customerClient.getCustomersByIds(distinct(bills, Bill::getCustomerId)))
+                : CompletableFuture.completedFuture(Map.of());
+        CompletableFuture<Map<Long, ProductDto>> products = expand.contains("product")
+                ? lookup(() -> productClient.getProductsByIds(distinct(bills, Bill::getProductId)))
+                : CompletableFuture.completedFuture(Map.of());
+
+        Map<Long, CustomerDto> resolvedCustomers = Objects.requireNonNullElse(await(customers, deadline), Map.of());
+        Map<Long, ProductDto> resolvedProducts = Objects.requireNonNullElse(await(products, deadline), Map.of());
+        return bills.map(bill -> {
+            BillView view = new BillView(bill);
+            view.setCustomer(resolvedCustomers.get(bill.getCustomerId()));
+            view.setProduct(resolvedProducts.get(bill.getProductId()));
+            return view;
+        });
+    }
+
+    private static Set<Long> distinct(Page<Bill> bills, Function<Bill, Long> id) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Bill bill : bills) {
+            ids.add(id.apply(bill));
+        }
+        return ids;
+    }
+
+    private <T> CompletableFuture<T> lookup(Supplier<T> call) {
+        try {
+            return CompletableFuture.supplyAsync(call, enrichmentExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Waits for {@code lookup} until {@code deadline}; returns {@code null} if it failed or timed out.
+     * A lookup that times out keeps running until its own HTTP timeout.
+     */
+    private <T> T await(CompletableFuture<T> lookup, long deadline) {
+        try {
+            return lookup.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // reported by the caller as a missing value
+        }
+        return null;
+    }
+
+    private static void put(Map<String, Object> response, String key, Object value, String errorKey, String error) {
+        if (value != null) {
+            response.put(key, value);
+        } else {
+            response.put(errorKey, error);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package me.medev.billingservice.service;
+
+import lombok.RequiredArgsConstructor;
+import me.medev.billingservice.analytics.BillingAnalyticsService;
+import me.medev.billingservice.entity.Bill;
+import me.medev.billingservice.repository.BillRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Write path for bills. Each write updates the billing rollups in the same transaction.
+ */
+@Service
+@RequiredArgsConstructor
+public class BillService {
+
+    private final BillRepository billRepository;
+    private final BillingAnalyticsService billingAnalyticsService;
+
+    @Transactional
+    public Bill create(Bill bill) {
+        return createAll(List.of(bill)).get(0);
+    }
+
+    @Transactional
+    public List<Bill> createAll(List<Bill> bills) {
+        List<Bill> saved = billRepository.saveAll(bills);
+        billingAnalyticsService.recordCreated(saved);
+        return saved;
+    }
+
+    /**
+     * Deletes the bill; returns {@code false} if it does not exist.
+     */
+    @Transactional
+    public boolean delete(Long id) {
+        Optional<Bill> bill = billRepository.findByIdForUpdate(id);
+        if (bill.isEmpty()) {
+            return false;
+        }
+        billRepository.delete(bill.get());
+        billingAnalyticsService.recordDeleted(bill.get());
+        return true;
+    }
+}
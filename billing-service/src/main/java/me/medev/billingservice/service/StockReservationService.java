@@ -0,0 +1,85 @@
+package me.medev.billingservice.service;
+
+import feign.FeignException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import me.medev.billingservice.client.ProductServiceClient;
+import me.medev.billingservice.dto.StockRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Takes stock in inventory-service for the bills being created. Stock is reserved before a
+ * bill is written and released again if the write fails.
+ * <p>
+ * Every reservation carries a fresh ID that inventory-service reserves and releases at most
+ * once. When a call fails without an answer, for instance on a read timeout after inventory
+ * committed it, the reservation is released by ID: that gives the stock back if it was taken
+ * and stops it from being taken if the request is still in flight.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockReservationService {
+
+    public static final String RESERVED = "RESERVED";
+    public static final String INSUFFICIENT_STOCK = "INSUFFICIENT_STOCK";
+    public static final String NOT_FOUND = "NOT_FOUND";
+
+    private final ProductServiceClient productServiceClient;
+
+    /**
+     * A request for {@code quantity} units under a new reservation ID.
+     */
+    public static StockRequest request(Long productId, int quantity) {
+        return new StockRequest(productId, quantity, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Returns {@code false} when fewer than {@code quantity} units are in stock.
+     */
+    public boolean reserve(StockRequest request) {
+        try {
+            productServiceClient.reserveStock(request.getProductId(), request.getQuantity(), request.getReservationId());
+            return true;
+        } catch (FeignException.Conflict e) {
+            return false;
+        } catch (RuntimeException e) {
+            release(List.of(request));
+            throw e;
+        }
+    }
+
+    /**
+     * Reserves each request independently; returns one result per request, in order.
+     */
+    public List<String> reserveAll(List<StockRequest> requests) {
+        List<String> results;
+        try {
+            results = productServiceClient.reserveStock(requests);
+        } catch (RuntimeException e) {
+            release(requests);
+            throw e;
+        }
+        if (results == null || results.size() != requests.size()) {
+            release(requests);
+            throw new IllegalStateException("Expected " + requests.size() + " stock reservation results but got "
+                    + (results == null ? null : results.size()));
+        }
+        return results;
+    }
+
+    /**
+     * Puts reserved units back. A failure is logged rather than thrown so it does not hide the
+     * error that made the release necessary; releasing the same requests again is safe.
+     */
+    public void release(List<StockRequest> requests) {
+        try {
+            productServiceClient.releaseStock(requests);
+        } catch (Exception e) {
+            log.error("Could not release reserved stock {}", requests, e);
+        }
+    }
+}
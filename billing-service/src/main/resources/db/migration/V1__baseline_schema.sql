@@ -0,0 +1,34 @@
+-- Schema previously created by Hibernate (ddl-auto: update). IF NOT EXISTS keeps this a
+-- no-op on databases that already have it.
+
+CREATE SEQUENCE IF NOT EXISTS bills_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS bills (
+    id           BIGINT         NOT NULL PRIMARY KEY,
+    customer_id  BIGINT         NOT NULL,
+    product_id   BIGINT         NOT NULL,
+    quantity     INTEGER        NOT NULL,
+    total_amount NUMERIC(38, 2) NOT NULL,
+    created_at   TIMESTAMP(6)   NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS customer_revenue (
+    customer_id  BIGINT         NOT NULL PRIMARY KEY,
+    bill_count   BIGINT         NOT NULL,
+    total_amount NUMERIC(38, 2) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS product_revenue (
+    product_id     BIGINT         NOT NULL PRIMARY KEY,
+    bill_count     BIGINT         NOT NULL,
+    total_quantity BIGINT         NOT NULL,
+    total_amount   NUMERIC(38, 2) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS revenue_buckets (
+    granularity  VARCHAR(255)   NOT NULL,
+    bucket_start DATE           NOT NULL,
+    bill_count   BIGINT         NOT NULL,
+    total_amount NUMERIC(38, 2) NOT NULL,
+    PRIMARY KEY (granularity, bucket_start)
+);
@@ -0,0 +1,3 @@
+-- BillRepository.findByCustomerId (optionally paged) and findByProductId
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bills_customer_created ON bills (customer_id, created_at);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_bills_product_created ON bills (product_id, created_at);
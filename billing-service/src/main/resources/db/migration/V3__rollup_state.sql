@@ -0,0 +1,6 @@
+-- One row per rollup set once it has been built from the bills table, so a restart never
+-- rebuilds it again, however many of its rows deletes have since removed.
+CREATE TABLE IF NOT EXISTS rollup_state (
+    name     VARCHAR(64)  NOT NULL PRIMARY KEY,
+    built_at TIMESTAMP(6) NOT NULL
+);
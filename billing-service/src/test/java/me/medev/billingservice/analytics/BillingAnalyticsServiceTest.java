@@ -0,0 +1,206 @@
+package me.medev.billingservice.analytics;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import me.medev.billingservice.entity.Bill;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Runs the rollup upserts and the backfill against an embedded Postgres migrated with the
+ * service's schema, and reads the rollup tables back directly.
+ */
+class BillingAnalyticsServiceTest {
+
+    private static final String SCHEMA = "billing_schema";
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+
+    private final BillingAnalyticsService service = new BillingAnalyticsService(jdbcTemplate, null, null, null);
+
+    @BeforeAll
+    static void migrate() throws IOException {
+        assumeFalse("root".equals(System.getProperty("user.name")), "Postgres refuses to run as root");
+        postgres = EmbeddedPostgres.start();
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .defaultSchema(SCHEMA)
+                .schemas(SCHEMA)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        DataSource dataSource = postgres.getDatabase("postgres", "postgres", Map.of("currentSchema", SCHEMA));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @BeforeEach
+    void clear() {
+        jdbcTemplate.execute("TRUNCATE bills, customer_revenue, product_revenue, revenue_buckets, rollup_state");
+    }
+
+    @Test
+    void createdBillsAccumulateIntoOneRowPerKey() {
+        create(bill(1, 10, 100, 2, "20.00", "2024-03-05T10:00"));
+        create(bill(2, 10, 101, 1, "5.50", "2024-03-05T11:00"), bill(3, 11, 100, 3, "30.00", "2024-03-06T09:00"));
+
+        assertThat(customer(10)).isEqualTo(List.of(2L, new BigDecimal("25.50")));
+        assertThat(customer(11)).isEqualTo(List.of(1L, new BigDecimal("30.00")));
+        assertThat(product(100)).isEqualTo(List.of(2L, 5L, new BigDecimal("50.00")));
+        assertThat(product(101)).isEqualTo(List.of(1L, 1L, new BigDecimal("5.50")));
+    }
+
+    @Test
+    void billsAreBucketedByDayAndByMonth() {
+        create(bill(1, 10, 100, 1, "10.00", "2024-01-31T08:00"),
+                bill(2, 10, 100, 1, "20.00", "2024-01-31T23:59"),
+                bill(3, 10, 100, 1, "40.00", "2024-02-01T00:00"));
+
+        assertThat(buckets(Granularity.DAY)).containsExactly(
+                Map.entry(LocalDate.of(2024, 1, 31), List.of(2L, new BigDecimal("30.00"))),
+                Map.entry(LocalDate.of(2024, 2, 1), List.of(1L, new BigDecimal("40.00"))));
+        assertThat(buckets(Granularity.MONTH)).containsExactly(
+                Map.entry(LocalDate.of(2024, 1, 1), List.of(2L, new BigDecimal("30.00"))),
+                Map.entry(LocalDate.of(2024, 2, 1), List.of(1L, new BigDecimal("40.00"))));
+    }
+
+    @Test
+    void deletingABillDecrementsItsRows() {
+        Bill kept = bill(1, 10, 100, 2, "20.00", "2024-03-05T10:00");
+        Bill deleted = bill(2, 10, 100, 3, "30.00", "2024-03-05T11:00");
+        create(kept, deleted);
+
+        delete(deleted);
+
+        assertThat(customer(10)).isEqualTo(List.of(1L, new BigDecimal("20.00")));
+        assertThat(product(100)).isEqualTo(List.of(1L, 2L, new BigDecimal("20.00")));
+        assertThat(buckets(Granularity.DAY)).containsExactly(
+                Map.entry(LocalDate.of(2024, 3, 5), List.of(1L, new BigDecimal("20.00"))));
+    }
+
+    @Test
+    void deletingTheLastBillRemovesItsRows() {
+        Bill kept = bill(1, 10, 100, 1, "10.00", "2024-03-05T10:00");
+        Bill deleted = bill(2, 11, 101, 1, "15.00", "2024-03-06T10:00");
+        create(kept, deleted);
+
+        delete(deleted);
+
+        assertThat(customer(11)).isNull();
+        assertThat(product(101)).isNull();
+        assertThat(buckets(Granularity.DAY)).containsOnlyKeys(LocalDate.of(2024, 3, 5));
+        assertThat(buckets(Granularity.MONTH)).containsExactly(
+                Map.entry(LocalDate.of(2024, 3, 1), List.of(1L, new BigDecimal("10.00"))));
+    }
+
+    @Test
+    void backfillCorrectsDeletesOfBillsItHadNotCounted() {
+        // Bills from before the rollups existed; deleting one takes its rows below zero, so they are dropped
+        Bill deleted = bill(1, 10, 100, 1, "10.00", "2024-03-05T10:00");
+        insert(deleted, bill(2, 10, 100, 2, "20.00", "2024-03-05T11:00"), bill(3, 11, 101, 1, "5.00", "2024-04-01T00:00"));
+        delete(deleted);
+        assertThat(customer(10)).isNull();
+        assertThat(buckets(Granularity.DAY)).isEmpty();
+
+        backfill();
+
+        assertThat(customer(10)).isEqualTo(List.of(1L, new BigDecimal("20.00")));
+        assertThat(customer(11)).isEqualTo(List.of(1L, new BigDecimal("5.00")));
+        assertThat(product(100)).isEqualTo(List.of(1L, 2L, new BigDecimal("20.00")));
+        assertThat(buckets(Granularity.DAY)).containsExactly(
+                Map.entry(LocalDate.of(2024, 3, 5), List.of(1L, new BigDecimal("20.00"))),
+                Map.entry(LocalDate.of(2024, 4, 1), List.of(1L, new BigDecimal("5.00"))));
+        assertThat(buckets(Granularity.MONTH)).containsExactly(
+                Map.entry(LocalDate.of(2024, 3, 1), List.of(1L, new BigDecimal("20.00"))),
+                Map.entry(LocalDate.of(2024, 4, 1), List.of(1L, new BigDecimal("5.00"))));
+    }
+
+    @Test
+    void backfillRunsOnlyOnce() {
+        insert(bill(1, 10, 100, 1, "10.00", "2024-03-05T10:00"));
+        backfill();
+        // Deleting every bill empties the rollups, which must not read as never having been built
+        delete(bill(1, 10, 100, 1, "10.00", "2024-03-05T10:00"));
+        insert(bill(2, 11, 101, 1, "15.00", "2024-03-06T10:00"));
+
+        backfill();
+
+        assertThat(customer(10)).isNull();
+        assertThat(customer(11)).isNull();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM rollup_state", Long.class)).isEqualTo(1L);
+    }
+
+    private void create(Bill... bills) {
+        transactionTemplate.executeWithoutResult(status -> {
+            insert(bills);
+            service.recordCreated(List.of(bills));
+        });
+    }
+
+    private void delete(Bill bill) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM bills WHERE id = ?", bill.getId());
+            service.recordDeleted(bill);
+        });
+    }
+
+    private void backfill() {
+        transactionTemplate.executeWithoutResult(status -> service.backfill());
+    }
+
+    private static void insert(Bill... bills) {
+        for (Bill bill : bills) {
+            jdbcTemplate.update("INSERT INTO bills (id, customer_id, product_id, quantity, total_amount, created_at) VALUES (?, ?, ?, ?, ?, ?)",
+                    bill.getId(), bill.getCustomerId(), bill.getProductId(), bill.getQuantity(), bill.getTotalAmount(), bill.getCreatedAt());
+        }
+    }
+
+    private static List<Object> customer(long customerId) {
+        return jdbcTemplate.query("SELECT bill_count, total_amount FROM customer_revenue WHERE customer_id = ?",
+                rs -> rs.next() ? List.of(rs.getLong(1), rs.getBigDecimal(2)) : null, customerId);
+    }
+
+    private static List<Object> product(long productId) {
+        return jdbcTemplate.query("SELECT bill_count, total_quantity, total_amount FROM product_revenue WHERE product_id = ?",
+                rs -> rs.next() ? List.of(rs.getLong(1), rs.getLong(2), rs.getBigDecimal(3)) : null, productId);
+    }
+
+    private static Map<LocalDate, List<Object>> buckets(Granularity granularity) {
+        Map<LocalDate, List<Object>> buckets = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT bucket_start, bill_count, total_amount FROM revenue_buckets WHERE granularity = ? ORDER BY bucket_start",
+                rs -> {
+                    buckets.put(rs.getObject(1, LocalDate.class), List.of(rs.getLong(2), rs.getBigDecimal(3)));
+                }, granularity.name());
+        return buckets;
+    }
+
+    private static Bill bill(long id, long customerId, long productId, int quantity, String amount, String createdAt) {
+        return new Bill(id, customerId, productId, quantity, new BigDecimal(amount), LocalDateTime.parse(createdAt));
+    }
+}
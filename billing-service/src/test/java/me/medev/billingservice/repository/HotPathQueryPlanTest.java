@@ -0,0 +1,82 @@
+package me.medev.billingservice.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Checks that the queries behind {@link BillRepository}'s lookups are planned on the indexes
+ * from the migrations. Runs the migrations against an embedded Postgres, fills the tables
+ * with enough rows for an index to pay off and compares the {@code EXPLAIN} output.
+ */
+class HotPathQueryPlanTest {
+
+    private static final String SCHEMA = "billing_schema";
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void migrateAndSeed() throws IOException {
+        assumeFalse("root".equals(System.getProperty("user.name")), "Postgres refuses to run as root");
+        postgres = EmbeddedPostgres.start();
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .defaultSchema(SCHEMA)
+                .schemas(SCHEMA)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        DataSource dataSource = postgres.getDatabase("postgres", "postgres", Map.of("currentSchema", SCHEMA));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        // 100k bills over 1000 customers and 500 products
+        jdbcTemplate.update("""
+                INSERT INTO bills (id, customer_id, product_id, quantity, total_amount, created_at)
+                SELECT i, i % 1000, i % 500, 1, 10.00, now() - i * interval '1 minute'
+                FROM generate_series(1, 100000) AS i""");
+        jdbcTemplate.execute("ANALYZE bills");
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    void billsOfCustomerUseCustomerIndex() {
+        assertThat(plan("SELECT * FROM bills WHERE customer_id = 42"))
+                .contains("idx_bills_customer_created")
+                .doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void pageOfCustomerBillsUsesCustomerIndex() {
+        assertThat(plan("SELECT * FROM bills WHERE customer_id = 42 ORDER BY id LIMIT 20 OFFSET 40"))
+                .contains("idx_bills_customer_created")
+                .doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void billsOfProductUseProductIndex() {
+        assertThat(plan("SELECT * FROM bills WHERE product_id = 42"))
+                .contains("idx_bills_product_created")
+                .doesNotContain("Seq Scan");
+    }
+
+    private static String plan(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+    }
+}
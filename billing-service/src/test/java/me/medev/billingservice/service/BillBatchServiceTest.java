@@ -0,0 +1,177 @@
+package me.medev.billingservice.service;
+
+import me.medev.billingservice.client.CachedCustomerClient;
+import me.medev.billingservice.client.CachedProductClient;
+import me.medev.billingservice.dto.BatchCreateResponse;
+import me.medev.billingservice.dto.CustomerDto;
+import me.medev.billingservice.dto.ProductDto;
+import me.medev.billingservice.dto.StockRequest;
+import me.medev.billingservice.entity.Bill;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static me.medev.billingservice.service.StockReservationService.INSUFFICIENT_STOCK;
+import static me.medev.billingservice.service.StockReservationService.RESERVED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BillBatchServiceTest {
+
+    private static final long CUSTOMER = 1L;
+    private static final long LAPTOP = 10L;
+    private static final long MOUSE = 11L;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final List<List<Bill>> inserted = new ArrayList<>();
+    private BillService billService;
+    private StockReservationService stockReservationService;
+    private BillBatchService batchService;
+
+    @BeforeEach
+    void setUp() {
+        CachedCustomerClient customerClient = mock(CachedCustomerClient.class);
+        when(customerClient.getCustomersByIds(anyCollection())).thenReturn(Map.of(CUSTOMER, customer(CUSTOMER)));
+        CachedProductClient productClient = mock(CachedProductClient.class);
+        when(productClient.getProductsForPricing(anyCollection()))
+                .thenReturn(Map.of(LAPTOP, product(LAPTOP, "999.99"), MOUSE, product(MOUSE, "12.50")));
+
+        billService = mock(BillService.class);
+        when(billService.createAll(anyList())).thenAnswer(invocation -> {
+            List<Bill> bills = invocation.getArgument(0);
+            inserted.add(List.copyOf(bills));
+            return bills;
+        });
+        stockReservationService = mock(StockReservationService.class);
+
+        batchService = new BillBatchService(billService, customerClient, productClient, executor, stockReservationService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void invalidItemsAreReportedByIndexAndTheRestAreCreated() {
+        when(stockReservationService.reserveAll(anyList())).thenReturn(List.of(RESERVED, RESERVED));
+
+        BatchCreateResponse response = batchService.createAll(Arrays.asList(
+                bill(CUSTOMER, LAPTOP, 2),
+                bill(CUSTOMER, MOUSE, 0),
+                null,
+                bill(99L, MOUSE, 1),
+                bill(CUSTOMER, 98L, 1),
+                bill(CUSTOMER, MOUSE, 4)));
+
+        assertThat(response.getCreated())
+                .extracting(Bill::getProductId, Bill::getTotalAmount)
+                .containsExactly(tuple(LAPTOP, new BigDecimal("1999.98")), tuple(MOUSE, new BigDecimal("50.00")));
+        assertThat(response.getErrors())
+                .extracting(BatchCreateResponse.ItemError::getIndex, BatchCreateResponse.ItemError::getMessage)
+                .containsExactly(
+                        tuple(1, "quantity must be positive"),
+                        tuple(2, "Bill is missing"),
+                        tuple(3, "Customer 99 not found"),
+                        tuple(4, "Product 98 not found"));
+        assertThat(reservedStock())
+                .extracting(StockRequest::getProductId, StockRequest::getQuantity)
+                .containsExactly(tuple(LAPTOP, 2), tuple(MOUSE, 4));
+    }
+
+    @Test
+    void itemWithoutStockFailsAloneAtItsIndex() {
+        when(stockReservationService.reserveAll(anyList())).thenReturn(List.of(RESERVED, INSUFFICIENT_STOCK, RESERVED));
+
+        BatchCreateResponse response = batchService.createAll(List.of(
+                bill(CUSTOMER, MOUSE, 1),
+                bill(CUSTOMER, LAPTOP, 50),
+                bill(CUSTOMER, MOUSE, 2)));
+
+        assertThat(response.getErrors())
+                .extracting(BatchCreateResponse.ItemError::getIndex, BatchCreateResponse.ItemError::getMessage)
+                .containsExactly(tuple(1, "Insufficient stock for product " + LAPTOP));
+        assertThat(inserted).singleElement().satisfies(bills -> assertThat(bills)
+                .extracting(Bill::getQuantity)
+                .containsExactly(1, 2));
+        verify(stockReservationService, never()).release(anyList());
+    }
+
+    @Test
+    void unreachableInventoryFailsEveryValidItem() {
+        when(stockReservationService.reserveAll(anyList())).thenThrow(new IllegalStateException("inventory down"));
+
+        BatchCreateResponse response = batchService.createAll(List.of(bill(CUSTOMER, MOUSE, 1), bill(CUSTOMER, 0L, 1)));
+
+        assertThat(response.getCreated()).isEmpty();
+        assertThat(response.getErrors())
+                .extracting(BatchCreateResponse.ItemError::getIndex, BatchCreateResponse.ItemError::getMessage)
+                .containsExactly(
+                        tuple(0, "Could not reserve stock for product " + MOUSE),
+                        tuple(1, "Product 0 not found"));
+        verify(billService, never()).createAll(anyList());
+    }
+
+    @Test
+    void failedInsertReleasesTheStockItReserved() {
+        when(stockReservationService.reserveAll(anyList())).thenReturn(List.of(INSUFFICIENT_STOCK, RESERVED));
+        when(billService.createAll(anyList())).thenThrow(new IllegalStateException("database down"));
+
+        assertThatThrownBy(() -> batchService.createAll(List.of(bill(CUSTOMER, LAPTOP, 50), bill(CUSTOMER, MOUSE, 3))))
+                .hasMessage("database down");
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<StockRequest>> released = ArgumentCaptor.forClass(List.class);
+        verify(stockReservationService).release(released.capture());
+        // Only the request that was reserved, under the reservation ID it was taken with
+        assertThat(released.getValue()).singleElement().satisfies(request -> {
+            assertThat(request.getProductId()).isEqualTo(MOUSE);
+            assertThat(request.getQuantity()).isEqualTo(3);
+            assertThat(request.getReservationId()).isEqualTo(reservedStock().get(1).getReservationId());
+        });
+    }
+
+    private List<StockRequest> reservedStock() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<StockRequest>> requests = ArgumentCaptor.forClass(List.class);
+        verify(stockReservationService).reserveAll(requests.capture());
+        return requests.getValue();
+    }
+
+    private static Bill bill(Long customerId, Long productId, int quantity) {
+        Bill bill = new Bill();
+        bill.setCustomerId(customerId);
+        bill.setProductId(productId);
+        bill.setQuantity(quantity);
+        return bill;
+    }
+
+    private static CustomerDto customer(long id) {
+        CustomerDto customer = new CustomerDto();
+        customer.setId(id);
+        return customer;
+    }
+
+    private static ProductDto product(long id, String price) {
+        ProductDto product = new ProductDto();
+        product.setId(id);
+        product.setPrice(new BigDecimal(price));
+        return product;
+    }
+}
@@ -0,0 +1,169 @@
+package me.medev.billingservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import me.medev.billingservice.client.CachedCustomerClient;
+import me.medev.billingservice.client.CachedProductClient;
+import me.medev.billingservice.client.CustomerServiceClient;
+import me.medev.billingservice.client.ProductServiceClient;
+import me.medev.billingservice.config.EnrichmentConfig;
+import me.medev.billingservice.dto.CustomerDto;
+import me.medev.billingservice.dto.ProductDto;
+import me.medev.billingservice.dto.StockRequest;
+import me.medev.billingservice.entity.Bill;
+import me.medev.common.dto.BatchLookupResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code GET /api/bills/{id}} enrichment against downstream services that answer after a
+ * fixed delay. {@code sequential} is the old controller code, one lookup after the other;
+ * {@code concurrent} is {@link BillEnrichmentService}. With a product lookup slower than
+ * the enrichment timeout, the concurrent path should return at the timeout. Every
+ * invocation uses new IDs so the near caches always miss.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn -pl billing-service test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *   -Dexec.args="-cp %classpath org.openjdk.jmh.Main BillEnrichmentBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class BillEnrichmentBenchmark {
+
+    private static final Duration TIMEOUT = Duration.ofMillis(300);
+    private static final long CUSTOMER_LATENCY_MS = 50;
+
+    @Param({"80", "1000"})
+    public long productLatencyMs;
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private ExecutorService executor;
+    private CachedCustomerClient customerClient;
+    private CachedProductClient productClient;
+    private BillEnrichmentService service;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        executor = new EnrichmentConfig().enrichmentExecutor(16, 64);
+        customerClient = new CachedCustomerClient(new SlowCustomerClient(CUSTOMER_LATENCY_MS), registry,
+                Duration.ofMinutes(10), 10_000);
+        productClient = new CachedProductClient(new SlowProductClient(productLatencyMs), registry,
+                Duration.ofMinutes(5), 10_000, Duration.ofSeconds(30));
+        service = new BillEnrichmentService(customerClient, productClient, executor, TIMEOUT);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public Map<String, Object> sequential() {
+        Bill bill = nextBill();
+        Map<String, Object> response = new HashMap<>();
+        response.put("bill", bill);
+        response.put("customer", customerClient.getCustomerById(bill.getCustomerId()));
+        response.put("product", productClient.getProductById(bill.getProductId()));
+        return response;
+    }
+
+    @Benchmark
+    public Map<String, Object> concurrent() {
+        return service.enrich(nextBill());
+    }
+
+    private Bill nextBill() {
+        Bill bill = new Bill();
+        bill.setId(ids.incrementAndGet());
+        bill.setCustomerId(bill.getId());
+        bill.setProductId(bill.getId());
+        bill.setQuantity(1);
+        return bill;
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record SlowCustomerClient(long latencyMs) implements CustomerServiceClient {
+
+        @Override
+        public CustomerDto getCustomerById(Long id) {
+            pause(latencyMs);
+            CustomerDto customer = new CustomerDto();
+            customer.setId(id);
+            return customer;
+        }
+
+        @Override
+        public BatchLookupResponse<CustomerDto> getCustomersByIds(Collection<Long> ids) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private record SlowProductClient(long latencyMs) implements ProductServiceClient {
+
+        @Override
+        public ProductDto getProductById(Long id) {
+            pause(latencyMs);
+            ProductDto product = new ProductDto();
+            product.setId(id);
+            return product;
+        }
+
+        @Override
+        public BatchLookupResponse<ProductDto> getProductsByIds(Collection<Long> ids) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void reserveStock(Long id, int quantity, String reservationId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void releaseStock(Long id, int quantity, String reservationId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<String> reserveStock(List<StockRequest> requests) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void releaseStock(List<StockRequest> requests) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -1,13 +1,16 @@
 package me.medev.chatbotservice;
 
+import me.medev.common.jpa.IdSequenceAligner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.context.annotation.Import;
 
 @SpringBootApplication
 @EnableDiscoveryClient
 @EnableFeignClients
+@Import(IdSequenceAligner.class)
 public class ChatbotServiceApplication {
 
     public static void main(String[] args) {
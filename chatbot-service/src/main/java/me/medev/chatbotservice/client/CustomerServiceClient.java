@@ -3,6 +3,8 @@ package me.medev.chatbotservice.client;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 
 import java.util.List;
 import java.util.Map;
@@ -15,4 +17,7 @@ public interface CustomerServiceClient {
 
     @GetMapping("/api/customers/{id}")
     Map<String, Object> getCustomerById(@PathVariable("id") Long id);
+
+    @PostMapping("/api/customers/batch")
+    Map<String, Object> getCustomersByIds(@RequestBody List<Long> ids);
 }
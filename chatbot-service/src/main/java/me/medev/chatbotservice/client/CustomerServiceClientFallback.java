@@ -18,4 +18,9 @@ public class CustomerServiceClientFallback implements CustomerServiceClient {
     public Map<String, Object> getCustomerById(Long id) {
         return Map.of("error", "Customer service unavailable");
     }
+
+    @Override
+    public Map<String, Object> getCustomersByIds(List<Long> ids) {
+        return Map.of("found", Collections.emptyMap(), "missing", ids, "error", "Customer service unavailable");
+    }
 }
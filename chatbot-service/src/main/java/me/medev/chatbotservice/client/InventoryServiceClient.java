@@ -3,6 +3,8 @@ package me.medev.chatbotservice.client;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 
 import java.util.List;
 import java.util.Map;
@@ -15,4 +17,7 @@ public interface InventoryServiceClient {
 
     @GetMapping("/api/products/{id}")
     Map<String, Object> getProductById(@PathVariable("id") Long id);
+
+    @PostMapping("/api/products/batch")
+    Map<String, Object> getProductsByIds(@RequestBody List<Long> ids);
 }
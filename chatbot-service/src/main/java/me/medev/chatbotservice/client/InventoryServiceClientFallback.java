@@ -18,4 +18,9 @@ public class InventoryServiceClientFallback implements InventoryServiceClient {
     public Map<String, Object> getProductById(Long id) {
         return Map.of("error", "Inventory service unavailable");
     }
+
+    @Override
+    public Map<String, Object> getProductsByIds(List<Long> ids) {
+        return Map.of("found", Collections.emptyMap(), "missing", ids, "error", "Inventory service unavailable");
+    }
 }
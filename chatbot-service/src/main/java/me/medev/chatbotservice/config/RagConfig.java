@@ -0,0 +1,59 @@
+package me.medev.chatbotservice.config;
+
+import lombok.extern.slf4j.Slf4j;
+import me.medev.chatbotservice.rag.ScalarSimilarityKernel;
+import me.medev.chatbotservice.rag.SimilarityKernel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+@Slf4j
+@Configuration
+public class RagConfig {
+
+    private static final String VECTOR_KERNEL = "me.medev.chatbotservice.rag.VectorApiSimilarityKernel";
+
+    /**
+     * {@code rag.similarity.kernel} is {@code scalar}, {@code vector} or {@code auto}; auto uses the
+     * Vector API kernel when the JVM runs with {@code --add-modules jdk.incubator.vector}.
+     */
+    @Bean
+    public SimilarityKernel similarityKernel(@Value("${rag.similarity.kernel:auto}") String kernel) {
+        SimilarityKernel selected = switch (kernel.toLowerCase()) {
+            case "scalar" -> new ScalarSimilarityKernel();
+            case "vector" -> vectorKernel();
+            case "auto" -> ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+                    ? vectorKernel()
+                    : new ScalarSimilarityKernel();
+            default -> throw new IllegalArgumentException("Unknown similarity kernel: " + kernel);
+        };
+        log.info("Using {} for RAG similarity", selected.getClass().getSimpleName());
+        return selected;
+    }
+
+    /**
+     * Replaces the OpenAI embedding model with {@link StubEmbeddingModel} when
+     * {@code rag.embedding.stub.enabled} is set, e.g. to benchmark ingestion offline.
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "rag.embedding.stub.enabled", havingValue = "true")
+    public EmbeddingModel stubEmbeddingModel(@Value("${rag.embedding.stub.dimensions:1536}") int dimensions,
+                                             @Value("${rag.embedding.stub.latency-ms:0}") long latencyMillis) {
+        log.warn("Using stub embedding model ({} dimensions, {} ms latency)", dimensions, latencyMillis);
+        return new StubEmbeddingModel(dimensions, latencyMillis);
+    }
+
+    private SimilarityKernel vectorKernel() {
+        try {
+            // Loaded reflectively so the class is never linked when the module is absent
+            return (SimilarityKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.warn("Vector API kernel unavailable, falling back to scalar", e);
+            return new ScalarSimilarityKernel();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package me.medev.chatbotservice.config;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Offline embedding model for local runs and ingestion benchmarks: deterministic
+ * pseudo-random vectors seeded by the text hash, with an optional simulated
+ * per-request latency standing in for the remote call.
+ */
+public class StubEmbeddingModel implements EmbeddingModel {
+
+    private final int dimensions;
+    private final long latencyMillis;
+
+    public StubEmbeddingModel(int dimensions, long latencyMillis) {
+        this.dimensions = dimensions;
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Embedding> embeddings = new ArrayList<>();
+        List<String> instructions = request.getInstructions();
+        for (int i = 0; i < instructions.size(); i++) {
+            embeddings.add(new Embedding(vector(instructions.get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return call(new EmbeddingRequest(List.of(document.getFormattedContent()), null))
+                .getResult()
+                .getOutput();
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    private float[] vector(String text) {
+        SplittableRandom random = new SplittableRandom(text.hashCode());
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) (random.nextDouble() * 2 - 1);
+        }
+        return vector;
+    }
+}
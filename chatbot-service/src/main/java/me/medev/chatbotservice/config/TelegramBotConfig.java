@@ -4,7 +4,9 @@ import me.medev.chatbotservice.telegram.TelegramBot;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.telegram.telegrambots.client.okhttp.OkHttpTelegramClient;
 import org.telegram.telegrambots.longpolling.TelegramBotsLongPollingApplication;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
 
 @Configuration
 public class TelegramBotConfig {
@@ -12,6 +14,11 @@ public class TelegramBotConfig {
     @Value("${telegram.bot.token}")
     private String botToken;
 
+    @Bean
+    public TelegramClient telegramClient() {
+        return new OkHttpTelegramClient(botToken);
+    }
+
     @Bean
     public TelegramBotsLongPollingApplication telegramBotsApplication(TelegramBot telegramBot) throws Exception {
         TelegramBotsLongPollingApplication botsApplication = new TelegramBotsLongPollingApplication();
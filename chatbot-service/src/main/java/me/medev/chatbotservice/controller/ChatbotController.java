@@ -1,10 +1,20 @@
 package me.medev.chatbotservice.controller;
 
 import lombok.RequiredArgsConstructor;
+import me.medev.chatbotservice.entity.IngestionJob;
 import me.medev.chatbotservice.service.ChatService;
+import me.medev.chatbotservice.service.IngestionJobService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -13,6 +23,10 @@ import java.util.Map;
 public class ChatbotController {
 
     private final ChatService chatService;
+    private final IngestionJobService ingestionJobService;
+
+    @Value("${chatbot.stream.timeout:2m}")
+    private Duration streamTimeout;
 
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> health() {
@@ -34,6 +48,29 @@ public class ChatbotController {
         return ResponseEntity.ok(Map.of("response", response));
     }
 
+    @PostMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> chatStream(@RequestBody Map<String, String> request) {
+        String chatId = request.getOrDefault("chatId", "web-user");
+        String message = request.get("message");
+
+        if (message == null || message.isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        Disposable subscription = chatService.chatStream(chatId, message)
+                .subscribe(token -> {
+                    try {
+                        emitter.send(SseEmitter.event().data(token));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, emitter::completeWithError, emitter::complete);
+        emitter.onTimeout(subscription::dispose);
+        emitter.onError(error -> subscription.dispose());
+        return ResponseEntity.ok(emitter);
+    }
+
     @DeleteMapping("/history/{chatId}")
     public ResponseEntity<Map<String, String>> clearHistory(@PathVariable String chatId) {
         chatService.clearHistory(chatId);
@@ -44,4 +81,9 @@ public class ChatbotController {
     public ResponseEntity<String> listDocuments(@PathVariable String chatId) {
         return ResponseEntity.ok(chatService.listDocuments(chatId));
     }
+
+    @GetMapping("/documents/{chatId}/jobs")
+    public ResponseEntity<List<IngestionJob>> listIngestionJobs(@PathVariable String chatId) {
+        return ResponseEntity.ok(ingestionJobService.listJobs(chatId));
+    }
 }
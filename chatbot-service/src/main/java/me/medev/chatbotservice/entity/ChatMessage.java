@@ -2,6 +2,7 @@ package me.medev.chatbotservice.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import me.medev.common.jpa.IdAllocation;
 
 import java.time.LocalDateTime;
 
@@ -15,7 +16,8 @@ import java.time.LocalDateTime;
 public class ChatMessage {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chat_messages_seq")
+    @SequenceGenerator(name = "chat_messages_seq", sequenceName = "chat_messages_seq", allocationSize = IdAllocation.BLOCK_SIZE)
     private Long id;
 
     @Column(name = "chat_id", nullable = false)
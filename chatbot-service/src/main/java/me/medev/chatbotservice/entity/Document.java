@@ -2,6 +2,7 @@ package me.medev.chatbotservice.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import me.medev.common.jpa.IdAllocation;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -17,7 +18,8 @@ import java.util.List;
 public class Document {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "documents_seq")
+    @SequenceGenerator(name = "documents_seq", sequenceName = "documents_seq", allocationSize = IdAllocation.BLOCK_SIZE)
     private Long id;
 
     @Column(name = "chat_id", nullable = false)
@@ -2,6 +2,7 @@ package me.medev.chatbotservice.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import me.medev.common.jpa.IdAllocation;
 
 @Entity
 @Table(name = "document_chunks")
@@ -13,7 +14,8 @@ import lombok.*;
 public class DocumentChunk {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "document_chunks_seq")
+    @SequenceGenerator(name = "document_chunks_seq", sequenceName = "document_chunks_seq", allocationSize = IdAllocation.BLOCK_SIZE)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -29,6 +31,7 @@ public class DocumentChunk {
     @Column(columnDefinition = "TEXT", nullable = false)
     private String content;
 
+    // Legacy column: new embeddings live in the mapped embedding store
     @Column(columnDefinition = "BYTEA")
     private float[] embedding;
 }
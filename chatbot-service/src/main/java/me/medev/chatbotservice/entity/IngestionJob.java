@@ -0,0 +1,53 @@
+package me.medev.chatbotservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import me.medev.common.jpa.IdAllocation;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "ingestion_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IngestionJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ingestion_jobs_seq")
+    @SequenceGenerator(name = "ingestion_jobs_seq", sequenceName = "ingestion_jobs_seq", allocationSize = IdAllocation.BLOCK_SIZE)
+    private Long id;
+
+    @Column(name = "chat_id", nullable = false)
+    private String chatId;
+
+    @Column(name = "file_id", nullable = false)
+    private String fileId;
+
+    @Column(name = "file_name", nullable = false)
+    private String fileName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private IngestionStatus status;
+
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @Column(name = "chunk_count")
+    private Integer chunkCount;
+
+    @Column(name = "embedded_chunks")
+    private Integer embeddedChunks;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
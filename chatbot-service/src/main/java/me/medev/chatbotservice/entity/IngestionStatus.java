@@ -0,0 +1,9 @@
+package me.medev.chatbotservice.entity;
+
+public enum IngestionStatus {
+    QUEUED,
+    EXTRACTING,
+    EMBEDDING,
+    DONE,
+    FAILED
+}
@@ -0,0 +1,324 @@
+package me.medev.chatbotservice.rag;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical Navigable Small World graph over chunk embeddings.
+ * Only the graph lives on the heap: vectors are normalised on insert and kept in a
+ * {@link MappedEmbeddingStore}, so similarity is a plain dot product (cosine) read
+ * straight from the mapped file.
+ * <p>
+ * Removed chunks stay in the graph so that the paths through them still connect their
+ * neighbours, but they never take a place among the results. Once they make up more than a
+ * quarter of the store, the store is compacted and the graph rebuilt without them; reopening
+ * the store does the same.
+ */
+public class HnswIndex implements Closeable {
+
+    private final MappedEmbeddingStore store;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+
+    private final Map<Long, Node> nodes = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Node entryPoint;
+
+    /**
+     * Builds the graph over every vector already present in {@code store}.
+     */
+    public HnswIndex(MappedEmbeddingStore store, int m, int efConstruction) {
+        this.store = store;
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        linkStored();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void add(long id, float[] embedding) {
+        if (embedding == null || embedding.length == 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (nodes.containsKey(id)) {
+                return;
+            }
+            if (store.dimension() != 0 && embedding.length != store.dimension()) {
+                return;
+            }
+            int slot = store.append(id, Vectors.normalise(embedding));
+            link(new Node(id, slot, randomLevel()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the given chunks from search results and marks their vectors deleted in the store.
+     */
+    public void remove(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            for (Long id : ids) {
+                Node node = nodes.remove(id);
+                if (node != null) {
+                    node.deleted = true;
+                    store.remove(id);
+                }
+            }
+            if ((store.size() - nodes.size()) * 4 > store.size()) {
+                store.compact();
+                nodes.clear();
+                entryPoint = null;
+                linkStored();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void linkStored() {
+        for (int slot = 0; slot < store.size(); slot++) {
+            long id = store.id(slot);
+            if (id != MappedEmbeddingStore.DELETED) {
+                link(new Node(id, slot, randomLevel()));
+            }
+        }
+    }
+
+    private void link(Node node) {
+        nodes.put(node.id, node);
+
+        if (entryPoint == null) {
+            entryPoint = node;
+            return;
+        }
+
+        Node current = entryPoint;
+        for (int level = entryPoint.level; level > node.level; level--) {
+            current = greedyClosest(node, current, level);
+        }
+
+        for (int level = Math.min(node.level, entryPoint.level); level >= 0; level--) {
+            List<Scored> candidates = searchLayer(node, current, efConstruction, level, false);
+            int maxConnections = level == 0 ? maxM0 : m;
+            List<Node> selected = closest(candidates, maxConnections);
+            node.neighbours.get(level).addAll(selected);
+            for (Node neighbour : selected) {
+                List<Node> links = neighbour.neighbours.get(level);
+                links.add(node);
+                if (links.size() > maxConnections) {
+                    prune(neighbour, level, maxConnections);
+                }
+            }
+            current = candidates.get(0).node;
+        }
+
+        if (node.level > entryPoint.level) {
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * Selects up to {@code k} chunk IDs whose cosine similarity exceeds {@code threshold}, best first.
+     * Small graphs are scanned exhaustively straight from the store.
+     */
+    public TopKSelector search(float[] query, int k, int efSearch, float threshold) {
+        TopKSelector selector = new TopKSelector(k, threshold);
+        lock.readLock().lock();
+        try {
+            if (entryPoint == null || query == null || query.length != store.dimension()) {
+                return selector;
+            }
+            float[] normalised = Vectors.normalise(query);
+
+            if (nodes.size() <= Math.max(efSearch, k)) {
+                for (int slot = 0; slot < store.size(); slot++) {
+                    long id = store.id(slot);
+                    if (id != MappedEmbeddingStore.DELETED) {
+                        selector.offer(id, store.dot(slot, normalised));
+                    }
+                }
+                return selector.sortDescending();
+            }
+
+            Query target = new Query(normalised);
+            Node current = entryPoint;
+            for (int level = entryPoint.level; level > 0; level--) {
+                current = greedyClosest(target, current, level);
+            }
+            for (Scored scored : searchLayer(target, current, Math.max(efSearch, k), 0, true)) {
+                selector.offer(scored.node.id, scored.score);
+            }
+            return selector.sortDescending();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            store.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Node greedyClosest(Target query, Node start, int level) {
+        Node best = start;
+        float bestScore = query.score(start);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (Node neighbour : best.neighbours.get(level)) {
+                float score = query.score(neighbour);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = neighbour;
+                    improved = true;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Beam search on one layer; the result is sorted best first. With {@code liveOnly}, removed
+     * nodes are still walked through but never take one of the {@code ef} result places.
+     */
+    private List<Scored> searchLayer(Target query, Node entry, int ef, int level, boolean liveOnly) {
+        Set<Node> visited = new HashSet<>();
+        PriorityQueue<Scored> candidates = new PriorityQueue<>(Comparator.comparingDouble((Scored s) -> s.score).reversed());
+        PriorityQueue<Scored> results = new PriorityQueue<>(Comparator.comparingDouble((Scored s) -> s.score));
+
+        Scored start = new Scored(entry, query.score(entry));
+        visited.add(entry);
+        candidates.add(start);
+        if (!liveOnly || !entry.deleted) {
+            results.add(start);
+        }
+
+        while (!candidates.isEmpty()) {
+            Scored candidate = candidates.poll();
+            if (results.size() >= ef && candidate.score < results.peek().score) {
+                break;
+            }
+            for (Node neighbour : candidate.node.neighbours.get(level)) {
+                if (!visited.add(neighbour)) {
+                    continue;
+                }
+                float score = query.score(neighbour);
+                if (results.size() < ef || score > results.peek().score) {
+                    Scored scored = new Scored(neighbour, score);
+                    candidates.add(scored);
+                    if (liveOnly && neighbour.deleted) {
+                        continue;
+                    }
+                    results.add(scored);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Scored> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingDouble((Scored s) -> s.score).reversed());
+        return sorted;
+    }
+
+    private void prune(Node node, int level, int maxConnections) {
+        List<Scored> scored = new ArrayList<>();
+        for (Node neighbour : node.neighbours.get(level)) {
+            scored.add(new Scored(neighbour, node.score(neighbour)));
+        }
+        scored.sort(Comparator.comparingDouble((Scored s) -> s.score).reversed());
+        node.neighbours.set(level, closest(scored, maxConnections));
+    }
+
+    private static List<Node> closest(List<Scored> sorted, int limit) {
+        List<Node> selected = new ArrayList<>(Math.min(limit, sorted.size()));
+        for (int i = 0; i < sorted.size() && i < limit; i++) {
+            selected.add(sorted.get(i).node);
+        }
+        return selected;
+    }
+
+    private int randomLevel() {
+        double r = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return (int) (-Math.log(r) * levelMultiplier);
+    }
+
+    private record Scored(Node node, float score) {
+    }
+
+    /**
+     * Something to measure stored vectors against: either an external query or another node.
+     */
+    private interface Target {
+        float score(Node node);
+    }
+
+    private final class Query implements Target {
+        private final float[] vector;
+
+        private Query(float[] vector) {
+            this.vector = vector;
+        }
+
+        @Override
+        public float score(Node node) {
+            return store.dot(node.slot, vector);
+        }
+    }
+
+    private final class Node implements Target {
+        private final long id;
+        private final int slot;
+        private final int level;
+        private final List<List<Node>> neighbours;
+        private boolean deleted;
+
+        private Node(long id, int slot, int level) {
+            this.id = id;
+            this.slot = slot;
+            this.level = level;
+            this.neighbours = new ArrayList<>(level + 1);
+            for (int i = 0; i <= level; i++) {
+                neighbours.add(new ArrayList<>());
+            }
+        }
+
+        @Override
+        public float score(Node other) {
+            return store.dot(slot, other.slot);
+        }
+    }
+}
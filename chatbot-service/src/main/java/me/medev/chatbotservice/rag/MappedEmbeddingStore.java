@@ -0,0 +1,303 @@
+package me.medev.chatbotservice.rag;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only embedding file for one chat, memory-mapped so vectors live off-heap.
+ * <p>
+ * Layout: a 16 byte header (magic, dimension, count) followed by fixed-size records
+ * of {@code [long chunkId][float x dimension]}. Records are addressed by slot, and
+ * similarity is computed straight from the mapped buffer. A mapped buffer is indexed by
+ * {@code int}, so the records are mapped in segments of at most 2 GB each. Removed records
+ * keep their slot with the ID overwritten by {@link #DELETED} until {@link #compact()}.
+ */
+public class MappedEmbeddingStore implements Closeable {
+
+    private static final int MAGIC = 0x45564543; // "EVEC"
+    private static final int HEADER_SIZE = 16;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long MAX_SEGMENT_BYTES = Integer.MAX_VALUE;
+
+    public static final long DELETED = -1;
+
+    private final FileChannel channel;
+    private final SimilarityKernel kernel;
+    private final long maxSegmentBytes;
+    private final Map<Long, Integer> slotsById = new HashMap<>();
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    private MappedByteBuffer header;
+    private int dimension;
+    private int count;
+    private int capacity;
+    private int slotsPerSegment;
+
+    private MappedEmbeddingStore(FileChannel channel, SimilarityKernel kernel, long maxSegmentBytes) {
+        this.channel = channel;
+        this.kernel = kernel;
+        this.maxSegmentBytes = maxSegmentBytes;
+    }
+
+    public static MappedEmbeddingStore open(Path file, SimilarityKernel kernel) {
+        return open(file, kernel, MAX_SEGMENT_BYTES);
+    }
+
+    static MappedEmbeddingStore open(Path file, SimilarityKernel kernel, long maxSegmentBytes) {
+        try {
+            FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedEmbeddingStore store = new MappedEmbeddingStore(channel, kernel, maxSegmentBytes);
+            store.load();
+            return store;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open embedding store " + file, e);
+        }
+    }
+
+    private void load() throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            return;
+        }
+        mapHeader();
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not an embedding store");
+        }
+        dimension = header.getInt(4);
+        count = header.getInt(8);
+        if (count == 0) {
+            clear();
+            return;
+        }
+        slotsPerSegment = slotsPerSegment(dimension);
+        long slots = (channel.size() - HEADER_SIZE) / recordSize();
+        for (int segment = 0; (long) segment * slotsPerSegment < slots; segment++) {
+            mapSegment(segment, (int) Math.min(slotsPerSegment, slots - (long) segment * slotsPerSegment));
+        }
+        for (int slot = 0; slot < count; slot++) {
+            long id = id(slot);
+            if (id == DELETED) {
+                continue;
+            }
+            Integer copied = slotsById.put(id, slot);
+            if (copied != null) {
+                // Left behind by a compaction that did not finish
+                setId(copied, DELETED);
+            }
+        }
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the slot holding {@code chunkId}, or -1 when it is not stored.
+     */
+    public int slot(long chunkId) {
+        return slotsById.getOrDefault(chunkId, -1);
+    }
+
+    /**
+     * Appends a vector and returns its slot. The first vector fixes the store's dimension.
+     */
+    public int append(long chunkId, float[] vector) {
+        Integer existing = slotsById.get(chunkId);
+        if (existing != null) {
+            return existing;
+        }
+        if (dimension == 0) {
+            dimension = vector.length;
+            slotsPerSegment = slotsPerSegment(dimension);
+            mapHeader();
+        } else if (vector.length != dimension) {
+            throw new IllegalArgumentException(
+                    "Expected dimension " + dimension + " but got " + vector.length);
+        }
+        if (count == capacity) {
+            grow();
+        }
+
+        MappedByteBuffer buffer = buffer(count);
+        int offset = offset(count);
+        buffer.putLong(offset, chunkId);
+        offset += Long.BYTES;
+        for (float v : vector) {
+            buffer.putFloat(offset, v);
+            offset += Float.BYTES;
+        }
+        slotsById.put(chunkId, count);
+        count++;
+        writeHeader();
+        return count - 1;
+    }
+
+    /**
+     * Marks the vector of {@code chunkId} as deleted; returns {@code false} when it is not stored.
+     */
+    public boolean remove(long chunkId) {
+        Integer slot = slotsById.remove(chunkId);
+        if (slot == null) {
+            return false;
+        }
+        setId(slot, DELETED);
+        return true;
+    }
+
+    /**
+     * Moves the stored vectors down over the deleted slots, keeping their order, so that slot
+     * numbers change. A record is copied before its old slot is marked deleted: a crash part
+     * way leaves at worst two copies, and loading keeps the later one.
+     */
+    public void compact() {
+        if (count == 0) {
+            return;
+        }
+        byte[] record = new byte[recordSize()];
+        int live = 0;
+        for (int slot = 0; slot < count; slot++) {
+            long id = id(slot);
+            if (id == DELETED) {
+                continue;
+            }
+            if (slot != live) {
+                buffer(slot).get(offset(slot), record);
+                buffer(live).put(offset(live), record);
+                setId(slot, DELETED);
+                slotsById.put(id, live);
+            }
+            live++;
+        }
+        count = live;
+        writeHeader();
+    }
+
+    /**
+     * Returns the chunk ID stored in {@code slot}, or {@link #DELETED}.
+     */
+    public long id(int slot) {
+        return buffer(slot).getLong(offset(slot));
+    }
+
+    public float dot(int slot, float[] query) {
+        return kernel.dot(buffer(slot), offset(slot) + Long.BYTES, query);
+    }
+
+    public float dot(int slotA, int slotB) {
+        return kernel.dot(buffer(slotA), offset(slotA) + Long.BYTES,
+                buffer(slotB), offset(slotB) + Long.BYTES, dimension);
+    }
+
+    public void force() {
+        if (header != null) {
+            header.force();
+        }
+        segments.forEach(MappedByteBuffer::force);
+    }
+
+    /**
+     * Drops every stored vector; used before rebuilding from the database.
+     */
+    public void clear() {
+        try {
+            channel.truncate(0);
+            header = null;
+            segments.clear();
+            dimension = 0;
+            count = 0;
+            capacity = 0;
+            slotsPerSegment = 0;
+            slotsById.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    /**
+     * Doubles the last segment, or starts a new one once it holds {@link #slotsPerSegment} records.
+     */
+    private void grow() {
+        if (count == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Embedding store is full at " + count + " vectors");
+        }
+        int segment = count / slotsPerSegment;
+        int mapped = segment < segments.size() ? segments.get(segment).capacity() / recordSize() : 0;
+        int slots = Math.min(slotsPerSegment, Math.max(INITIAL_CAPACITY, mapped * 2));
+        mapSegment(segment, slots);
+    }
+
+    private void setId(int slot, long id) {
+        buffer(slot).putLong(offset(slot), id);
+    }
+
+    private void mapHeader() {
+        try {
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.order(ByteOrder.nativeOrder());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void mapSegment(int segment, int slots) {
+        long position = HEADER_SIZE + (long) segment * slotsPerSegment * recordSize();
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, (long) slots * recordSize());
+            buffer.order(ByteOrder.nativeOrder());
+            if (segment < segments.size()) {
+                segments.set(segment, buffer);
+            } else {
+                segments.add(buffer);
+            }
+            capacity = segment * slotsPerSegment + slots;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeHeader() {
+        header.putInt(0, MAGIC);
+        header.putInt(4, dimension);
+        header.putInt(8, count);
+    }
+
+    private int slotsPerSegment(int dimension) {
+        long recordSize = Long.BYTES + (long) dimension * Float.BYTES;
+        if (recordSize > maxSegmentBytes) {
+            throw new IllegalArgumentException("Embedding of dimension " + dimension + " does not fit in a segment");
+        }
+        return (int) Math.min(maxSegmentBytes / recordSize, Integer.MAX_VALUE);
+    }
+
+    private int recordSize() {
+        return Long.BYTES + dimension * Float.BYTES;
+    }
+
+    private MappedByteBuffer buffer(int slot) {
+        return segments.get(slot / slotsPerSegment);
+    }
+
+    private int offset(int slot) {
+        return (slot % slotsPerSegment) * recordSize();
+    }
+}
@@ -0,0 +1,54 @@
+package me.medev.chatbotservice.rag;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Portable kernel; four independent accumulators let the JIT pipeline the multiply-adds.
+ * Products of two floats are exact in double, so only the additions round.
+ */
+public class ScalarSimilarityKernel implements SimilarityKernel {
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        int length = Math.min(a.length, b.length);
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            s0 += (double) a[i] * b[i];
+            s1 += (double) a[i + 1] * b[i + 1];
+            s2 += (double) a[i + 2] * b[i + 2];
+            s3 += (double) a[i + 3] * b[i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += (double) a[i] * b[i];
+        }
+        return (float) ((s0 + s1) + (s2 + s3));
+    }
+
+    @Override
+    public float dot(ByteBuffer buffer, int offset, float[] query) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < query.length; i += 4) {
+            int at = offset + i * Float.BYTES;
+            s0 += (double) buffer.getFloat(at) * query[i];
+            s1 += (double) buffer.getFloat(at + 4) * query[i + 1];
+            s2 += (double) buffer.getFloat(at + 8) * query[i + 2];
+            s3 += (double) buffer.getFloat(at + 12) * query[i + 3];
+        }
+        for (; i < query.length; i++) {
+            s0 += (double) buffer.getFloat(offset + i * Float.BYTES) * query[i];
+        }
+        return (float) ((s0 + s1) + (s2 + s3));
+    }
+
+    @Override
+    public float dot(ByteBuffer a, int offsetA, ByteBuffer b, int offsetB, int dimension) {
+        double sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            int delta = i * Float.BYTES;
+            sum += (double) a.getFloat(offsetA + delta) * b.getFloat(offsetB + delta);
+        }
+        return (float) sum;
+    }
+}
@@ -0,0 +1,16 @@
+package me.medev.chatbotservice.rag;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Dot product over pre-normalised embeddings, either on heap arrays or directly
+ * on (memory-mapped) buffers holding native-order floats.
+ */
+public interface SimilarityKernel {
+
+    float dot(float[] a, float[] b);
+
+    float dot(ByteBuffer buffer, int offset, float[] query);
+
+    float dot(ByteBuffer a, int offsetA, ByteBuffer b, int offsetB, int dimension);
+}
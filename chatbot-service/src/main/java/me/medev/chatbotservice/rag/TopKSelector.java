@@ -0,0 +1,123 @@
+package me.medev.chatbotservice.rag;
+
+/**
+ * Keeps the {@code k} best (id, score) pairs seen during a scan in a fixed-size
+ * min-heap backed by parallel primitive arrays, so offering a candidate never allocates.
+ * Scores at or below the threshold are rejected up front. Equal scores rank the lower id
+ * first, so the result does not depend on the order candidates were offered in.
+ */
+public final class TopKSelector {
+
+    private final long[] ids;
+    private final float[] scores;
+    private final float threshold;
+    private int size;
+    private boolean sorted;
+
+    public TopKSelector(int k, float threshold) {
+        this.ids = new long[k];
+        this.scores = new float[k];
+        this.threshold = threshold;
+    }
+
+    /**
+     * Returns {@code true} if the candidate is currently among the top k.
+     */
+    public boolean offer(long id, float score) {
+        if (sorted) {
+            throw new IllegalStateException("Selector has already been sorted");
+        }
+        if (score <= threshold || ids.length == 0) {
+            return false;
+        }
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+            return true;
+        }
+        if (score < scores[0] || (score == scores[0] && id > ids[0])) {
+            return false;
+        }
+        ids[0] = id;
+        scores[0] = score;
+        siftDown(0, size);
+        return true;
+    }
+
+    /**
+     * Lowest score currently kept, or the threshold while fewer than k candidates were accepted.
+     */
+    public float floor() {
+        return size < ids.length ? threshold : scores[0];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Orders the kept entries best first (in-place heapsort); no further offers are accepted.
+     */
+    public TopKSelector sortDescending() {
+        if (!sorted) {
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                siftDown(0, end);
+            }
+            sorted = true;
+        }
+        return this;
+    }
+
+    public long id(int rank) {
+        return ids[rank];
+    }
+
+    public float score(int rank) {
+        return scores[rank];
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!worse(index, parent)) {
+                return;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index, int limit) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < limit && worse(left, smallest)) {
+                smallest = left;
+            }
+            if (right < limit && worse(right, smallest)) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private boolean worse(int a, int b) {
+        return scores[a] < scores[b] || (scores[a] == scores[b] && ids[a] > ids[b]);
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
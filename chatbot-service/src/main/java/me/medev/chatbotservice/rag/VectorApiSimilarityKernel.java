@@ -0,0 +1,85 @@
+package me.medev.chatbotservice.rag;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * SIMD kernel on {@code jdk.incubator.vector}. Only instantiated through
+ * {@link me.medev.chatbotservice.config.RagConfig} when the incubator module is present.
+ * <p>
+ * Lanes accumulate in float for at most {@link #BLOCK} steps before they are reduced into a
+ * double sum, so rounding error stays that of a short float sum whatever the dimension.
+ */
+public class VectorApiSimilarityKernel implements SimilarityKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+    private static final int BLOCK = 16;
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        int length = Math.min(a.length, b.length);
+        double sum = 0;
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        while (i < bound) {
+            FloatVector acc = FloatVector.zero(SPECIES);
+            for (int end = Math.min(bound, i + BLOCK * SPECIES.length()); i < end; i += SPECIES.length()) {
+                FloatVector va = FloatVector.fromArray(SPECIES, a, i);
+                FloatVector vb = FloatVector.fromArray(SPECIES, b, i);
+                acc = va.fma(vb, acc);
+            }
+            sum += acc.reduceLanes(VectorOperators.ADD);
+        }
+        for (; i < length; i++) {
+            sum += (double) a[i] * b[i];
+        }
+        return (float) sum;
+    }
+
+    @Override
+    public float dot(ByteBuffer buffer, int offset, float[] query) {
+        double sum = 0;
+        int i = 0;
+        int bound = SPECIES.loopBound(query.length);
+        while (i < bound) {
+            FloatVector acc = FloatVector.zero(SPECIES);
+            for (int end = Math.min(bound, i + BLOCK * SPECIES.length()); i < end; i += SPECIES.length()) {
+                FloatVector stored = FloatVector.fromByteBuffer(SPECIES, buffer, offset + i * Float.BYTES, ORDER);
+                FloatVector vq = FloatVector.fromArray(SPECIES, query, i);
+                acc = stored.fma(vq, acc);
+            }
+            sum += acc.reduceLanes(VectorOperators.ADD);
+        }
+        for (; i < query.length; i++) {
+            sum += (double) buffer.getFloat(offset + i * Float.BYTES) * query[i];
+        }
+        return (float) sum;
+    }
+
+    @Override
+    public float dot(ByteBuffer a, int offsetA, ByteBuffer b, int offsetB, int dimension) {
+        double sum = 0;
+        int i = 0;
+        int bound = SPECIES.loopBound(dimension);
+        while (i < bound) {
+            FloatVector acc = FloatVector.zero(SPECIES);
+            for (int end = Math.min(bound, i + BLOCK * SPECIES.length()); i < end; i += SPECIES.length()) {
+                int delta = i * Float.BYTES;
+                FloatVector va = FloatVector.fromByteBuffer(SPECIES, a, offsetA + delta, ORDER);
+                FloatVector vb = FloatVector.fromByteBuffer(SPECIES, b, offsetB + delta, ORDER);
+                acc = va.fma(vb, acc);
+            }
+            sum += acc.reduceLanes(VectorOperators.ADD);
+        }
+        for (; i < dimension; i++) {
+            int delta = i * Float.BYTES;
+            sum += (double) a.getFloat(offsetA + delta) * b.getFloat(offsetB + delta);
+        }
+        return (float) sum;
+    }
+}
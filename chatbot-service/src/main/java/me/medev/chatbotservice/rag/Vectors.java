@@ -0,0 +1,26 @@
+package me.medev.chatbotservice.rag;
+
+public final class Vectors {
+
+    private Vectors() {
+    }
+
+    /**
+     * Returns a unit-length copy of {@code vector}, so cosine similarity becomes a dot product.
+     */
+    public static float[] normalise(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += (double) v * v;
+        }
+        float[] normalised = new float[vector.length];
+        if (norm == 0) {
+            return normalised;
+        }
+        float inverse = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            normalised[i] = vector[i] * inverse;
+        }
+        return normalised;
+    }
+}
@@ -0,0 +1,11 @@
+package me.medev.chatbotservice.repository;
+
+/**
+ * Projection used to re-embed chunks whose vectors are no longer stored.
+ */
+public interface ChunkContentView {
+
+    Long getId();
+
+    String getContent();
+}
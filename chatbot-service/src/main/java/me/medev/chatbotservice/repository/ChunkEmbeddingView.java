@@ -0,0 +1,11 @@
+package me.medev.chatbotservice.repository;
+
+/**
+ * Projection used to build the vector index without loading chunk content.
+ */
+public interface ChunkEmbeddingView {
+
+    Long getId();
+
+    float[] getEmbedding();
+}
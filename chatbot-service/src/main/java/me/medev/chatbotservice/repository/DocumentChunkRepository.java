@@ -2,7 +2,11 @@ package me.medev.chatbotservice.repository;
 
 import me.medev.chatbotservice.entity.DocumentChunk;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -12,4 +16,20 @@ public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, Lo
     List<DocumentChunk> findByChatId(String chatId);
 
     List<DocumentChunk> findByDocumentId(Long documentId);
+
+    boolean existsByChatId(String chatId);
+
+    @Query("select c.id from DocumentChunk c where c.document.id = :documentId")
+    List<Long> findIdsByDocumentId(@Param("documentId") Long documentId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from DocumentChunk c where c.document.id = :documentId")
+    int deleteByDocumentId(@Param("documentId") Long documentId);
+
+    @Query("select c.id as id, c.embedding as embedding from DocumentChunk c where c.chatId = :chatId and c.embedding is not null")
+    List<ChunkEmbeddingView> findEmbeddingsByChatId(@Param("chatId") String chatId);
+
+    @Query("select c.id as id, c.content as content from DocumentChunk c where c.chatId = :chatId and c.embedding is null order by c.id")
+    List<ChunkContentView> findUnembeddedByChatId(@Param("chatId") String chatId);
 }
@@ -0,0 +1,32 @@
+package me.medev.chatbotservice.repository;
+
+import me.medev.chatbotservice.entity.IngestionJob;
+import me.medev.chatbotservice.entity.IngestionStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface IngestionJobRepository extends JpaRepository<IngestionJob, Long> {
+
+    List<IngestionJob> findByChatIdOrderByCreatedAtDesc(String chatId);
+
+    List<IngestionJob> findByStatusInOrderByCreatedAtAsc(Collection<IngestionStatus> statuses);
+
+    /**
+     * Records embedding progress; a report behind the one already stored is ignored.
+     */
+    @Transactional
+    @Modifying
+    @Query("update IngestionJob j set j.embeddedChunks = :embedded, j.chunkCount = :total, j.updatedAt = :updatedAt "
+            + "where j.id = :id and (j.embeddedChunks is null or j.embeddedChunks < :embedded)")
+    int updateProgress(@Param("id") Long id, @Param("embedded") int embedded, @Param("total") int total,
+                       @Param("updatedAt") LocalDateTime updatedAt);
+}
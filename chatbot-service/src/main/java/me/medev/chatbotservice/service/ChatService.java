@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import me.medev.chatbotservice.entity.ChatMessage;
 import me.medev.chatbotservice.entity.Document;
+import me.medev.chatbotservice.entity.IngestionJob;
 import me.medev.chatbotservice.repository.ChatMessageRepository;
 import me.medev.chatbotservice.repository.DocumentRepository;
 import org.springframework.ai.chat.client.ChatClient;
@@ -13,12 +14,15 @@ import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.stereotype.Service;
-import org.telegram.telegrambots.meta.generics.TelegramClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @Service
@@ -30,21 +34,34 @@ public class ChatService {
     private final DocumentRepository documentRepository;
     private final RagService ragService;
     private final McpToolService mcpToolService;
+    private final IngestionJobService ingestionJobService;
+    private final LlmCallLimiter llmCallLimiter;
+    private final SemanticResponseCache responseCache;
 
     public String chat(String chatId, String userMessage) {
         log.info("Processing chat for user {}: {}", chatId, userMessage);
 
-        // Save user message
+        // Conversation so far, then save user message
+        List<ChatMessage> history = recentHistory(chatId);
         saveMessage(chatId, "user", userMessage);
 
+        // Answer repeated questions against the same retrieved context from the cache
+        RagService.RetrievedContext context = ragService.retrieve(chatId, userMessage);
+        Optional<String> cached = responseCache.lookup(chatId, context);
+        if (cached.isPresent()) {
+            saveMessage(chatId, "assistant", cached.get());
+            return cached.get();
+        }
+
         // Build conversation history
-        List<Message> messages = buildConversation(chatId, userMessage);
+        List<Message> messages = buildConversation(history, userMessage, context);
 
         // Get AI response
         ChatClient chatClient = chatClientBuilder.build();
-        String response = chatClient.prompt(new Prompt(messages))
+        String response = llmCallLimiter.call(() -> chatClient.prompt(new Prompt(messages))
                 .call()
-                .content();
+                .content());
+        responseCache.put(chatId, context, response);
 
         // Save assistant response
         saveMessage(chatId, "assistant", response);
@@ -52,18 +69,57 @@ public class ChatService {
         return response;
     }
 
-    private List<Message> buildConversation(String chatId, String currentMessage) {
-        List<Message> messages = new ArrayList<>();
+    /**
+     * Streaming variant of {@link #chat}: emits content tokens as the model produces them and
+     * persists the assistant message once the stream completes.
+     */
+    public Flux<String> chatStream(String chatId, String userMessage) {
+        log.info("Processing streaming chat for user {}: {}", chatId, userMessage);
 
-        // System prompt with RAG context and MCP tools info
-        String systemPrompt = buildSystemPrompt(chatId, currentMessage);
-        messages.add(new SystemMessage(systemPrompt));
+        List<ChatMessage> history = recentHistory(chatId);
+        saveMessage(chatId, "user", userMessage);
+        RagService.RetrievedContext context = ragService.retrieve(chatId, userMessage);
+        Optional<String> cached = responseCache.lookup(chatId, context);
+        if (cached.isPresent()) {
+            saveMessage(chatId, "assistant", cached.get());
+            return Flux.just(cached.get());
+        }
+        List<Message> messages = buildConversation(history, userMessage, context);
 
-        // Add conversation history (last 10 messages)
+        ChatClient chatClient = chatClientBuilder.build();
+        return Flux.defer(() -> {
+            StringBuilder response = new StringBuilder();
+            return llmCallLimiter.stream(() -> chatClient.prompt(new Prompt(messages))
+                            .stream()
+                            .content()
+                            .doOnNext(response::append))
+                    // Completion arrives on the HTTP client's event loop, which must not block on JPA
+                    .concatWith(Mono.<String>fromRunnable(() -> {
+                        responseCache.put(chatId, context, response.toString());
+                        saveMessage(chatId, "assistant", response.toString());
+                    }).subscribeOn(Schedulers.boundedElastic()));
+        });
+    }
+
+    /**
+     * Last 10 messages of the chat, oldest first.
+     */
+    private List<ChatMessage> recentHistory(String chatId) {
         List<ChatMessage> history = chatMessageRepository
                 .findTop10ByChatIdOrderByTimestampDescMutable(chatId);
         Collections.reverse(history);
+        return history;
+    }
+
+    private List<Message> buildConversation(List<ChatMessage> history, String currentMessage,
+                                            RagService.RetrievedContext context) {
+        List<Message> messages = new ArrayList<>();
 
+        // System prompt with RAG context and MCP tools info
+        String systemPrompt = buildSystemPrompt(context);
+        messages.add(new SystemMessage(systemPrompt));
+
+        // Add conversation history
         for (ChatMessage msg : history) {
             if ("user".equals(msg.getRole())) {
                 messages.add(new UserMessage(msg.getContent()));
@@ -78,7 +134,7 @@ public class ChatService {
         return messages;
     }
 
-    private String buildSystemPrompt(String chatId, String userMessage) {
+    private String buildSystemPrompt(RagService.RetrievedContext context) {
         StringBuilder prompt = new StringBuilder();
         prompt.append("""
                 You are a helpful AI assistant integrated with a microservices architecture.
@@ -90,7 +146,7 @@ public class ChatService {
                 """);
 
         // Add RAG context if documents exist
-        String ragContext = ragService.searchRelevantContext(chatId, userMessage);
+        String ragContext = context.text();
         if (ragContext != null && !ragContext.isEmpty()) {
             prompt.append("\n--- RELEVANT DOCUMENT CONTEXT ---\n");
             prompt.append(ragContext);
@@ -105,13 +161,10 @@ public class ChatService {
         return prompt.toString();
     }
 
-    public String processPdfDocument(String chatId, String fileId, String fileName, TelegramClient telegramClient) {
-        try {
-            return ragService.processPdfFromTelegram(chatId, fileId, fileName, telegramClient);
-        } catch (Exception e) {
-            log.error("Error processing PDF", e);
-            return "❌ Failed to process PDF: " + e.getMessage();
-        }
+    public String processPdfDocument(String chatId, String fileId, String fileName) {
+        IngestionJob job = ingestionJobService.submit(chatId, fileId, fileName);
+        return String.format("📄 Queued PDF %s for processing (job #%d). I'll let you know when it's ready.",
+                fileName, job.getId());
     }
 
     public void clearHistory(String chatId) {
@@ -0,0 +1,165 @@
+package me.medev.chatbotservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Text-to-embedding cache in front of {@link EmbeddingModel}. Keys are normalised
+ * (NFKC, lower case, collapsed whitespace) so greetings and retries that differ only in
+ * formatting share one embedding. Capacity is bounded in bytes rather than entries,
+ * entries expire after a TTL and the least recently used ones are evicted first.
+ * <p>
+ * Returned arrays are shared with the cache and must not be modified.
+ */
+@Service
+public class EmbeddingCache {
+
+    // Rough per-entry cost of the map node, entry record and array headers
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final EmbeddingModel embeddingModel;
+    private final long maxBytes;
+    private final long ttlNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long usedBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer singleCalls;
+    private final Timer batchCalls;
+
+    public EmbeddingCache(EmbeddingModel embeddingModel,
+                          MeterRegistry registry,
+                          @Value("${rag.embedding-cache.max-bytes:67108864}") long maxBytes,
+                          @Value("${rag.embedding-cache.ttl:6h}") Duration ttl) {
+        this.embeddingModel = embeddingModel;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttl.toNanos();
+        this.hits = Counter.builder("chatbot.embedding.cache").tag("result", "hit").register(registry);
+        this.misses = Counter.builder("chatbot.embedding.cache").tag("result", "miss").register(registry);
+        Gauge.builder("chatbot.embedding.cache.bytes", this, EmbeddingCache::usedBytes).register(registry);
+        // Model calls only, i.e. cache misses
+        this.singleCalls = Timer.builder("chatbot.embedding.call").tag("kind", "single").register(registry);
+        this.batchCalls = Timer.builder("chatbot.embedding.call").tag("kind", "batch").register(registry);
+    }
+
+    public float[] embed(String text) {
+        String key = normalise(text);
+        float[] cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+        float[] embedding = singleCalls.record(() -> embeddingModel.embed(text));
+        put(key, embedding);
+        return embedding;
+    }
+
+    /**
+     * Embeds a batch of document chunks in a single model call, sending each distinct text
+     * once. Chunks bypass the cache: their texts are rarely embedded again, and one large
+     * document would otherwise evict the query embeddings the cache is there for.
+     */
+    public List<float[]> embedChunks(List<String> texts) {
+        Map<String, List<Integer>> positions = new LinkedHashMap<>();
+        List<String> distinct = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            List<Integer> waiting = positions.computeIfAbsent(normalise(texts.get(i)), key -> new ArrayList<>());
+            if (waiting.isEmpty()) {
+                distinct.add(texts.get(i));
+            }
+            waiting.add(i);
+        }
+
+        List<float[]> embedded = batchCalls.record(() -> embeddingModel.embed(distinct));
+        float[][] results = new float[texts.size()][];
+        int next = 0;
+        for (List<Integer> waiting : positions.values()) {
+            float[] embedding = embedded.get(next++);
+            for (int index : waiting) {
+                results[index] = embedding;
+            }
+        }
+        return List.of(results);
+    }
+
+    private float[] get(String key) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.createdAt() > ttlNanos) {
+                entries.remove(key);
+                usedBytes -= entry.bytes();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.embedding();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(String key, float[] embedding) {
+        if (embedding == null || embedding.length == 0) {
+            return;
+        }
+        long bytes = ENTRY_OVERHEAD + 2L * key.length() + 4L * embedding.length;
+        if (bytes > maxBytes) {
+            return;
+        }
+        lock.lock();
+        try {
+            Entry previous = entries.put(key, new Entry(embedding, System.nanoTime(), bytes));
+            if (previous != null) {
+                usedBytes -= previous.bytes();
+            }
+            usedBytes += bytes;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (usedBytes > maxBytes && eldest.hasNext()) {
+                usedBytes -= eldest.next().bytes();
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long usedBytes() {
+        lock.lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static String normalise(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFKC)
+                .strip()
+                .replaceAll("\\s+", " ")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(float[] embedding, long createdAt, long bytes) {
+    }
+}
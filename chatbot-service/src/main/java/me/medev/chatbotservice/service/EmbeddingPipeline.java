@@ -0,0 +1,214 @@
+package me.medev.chatbotservice.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import me.medev.chatbotservice.entity.Document;
+import me.medev.common.jpa.IdAllocation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embeds document chunks in batches through {@link EmbeddingCache#embedChunks(List)} on a bounded
+ * worker pool and persists each batch with a single JDBC batch insert, taking IDs from the
+ * chunk sequence in pooled-lo blocks. Chunk texts repeated within a batch (headers, footers,
+ * boilerplate pages) are embedded once. A batch's rows are inserted in one transaction and its
+ * vectors are indexed once that commits; a batch whose embedding call keeps failing is never
+ * inserted.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EmbeddingPipeline {
+
+    private static final String INSERT_CHUNK =
+            "INSERT INTO document_chunks (id, document_id, chat_id, chunk_index, content) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String RESERVE_ID_BLOCKS =
+            "SELECT nextval('document_chunks_seq') FROM generate_series(1, ?)";
+
+    private final EmbeddingCache embeddingCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final VectorIndexService vectorIndexService;
+
+    @Value("${rag.ingestion.batch-size:32}")
+    private int batchSize;
+
+    @Value("${rag.ingestion.concurrency:4}")
+    private int concurrency;
+
+    @Value("${rag.ingestion.batch-timeout:5m}")
+    private Duration batchTimeout;
+
+    @Value("${rag.ingestion.embed-attempts:3}")
+    private int embedAttempts;
+
+    @Value("${rag.ingestion.embed-backoff:1s}")
+    private Duration embedBackoff;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "embedding-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        // Cancelling the batches that never started completes their futures, so ingest() stops waiting
+        executor.shutdownNow().forEach(batch -> ((Future<?>) batch).cancel(false));
+    }
+
+    /**
+     * Embeds and stores every chunk of {@code document}; returns once all batches are persisted.
+     * When a batch fails, is cancelled or takes longer than {@code rag.ingestion.batch-timeout},
+     * the batches not yet persisted are skipped and the call returns once no batch is still
+     * running, so the caller can remove what was stored.
+     */
+    public void ingest(Document document, List<String> chunks, ProgressListener listener)
+            throws InterruptedException, ExecutionException {
+        AtomicInteger embedded = new AtomicInteger();
+        AtomicBoolean aborted = new AtomicBoolean();
+        int batchCount = (chunks.size() + batchSize - 1) / batchSize;
+        CountDownLatch settled = new CountDownLatch(batchCount);
+        List<Future<?>> batches = new ArrayList<>(batchCount);
+        for (int start = 0; start < chunks.size(); start += batchSize) {
+            int offset = start;
+            List<String> batch = chunks.subList(start, Math.min(start + batchSize, chunks.size()));
+            FutureTask<Void> task = new FutureTask<>(() -> {
+                if (aborted.get()) {
+                    return null;
+                }
+                List<float[]> embeddings = embed(batch, aborted);
+                if (aborted.get()) {
+                    return null;
+                }
+                persist(document, offset, batch, embeddings);
+                listener.onProgress(embedded.addAndGet(batch.size()), chunks.size());
+                return null;
+            }) {
+                @Override
+                protected void done() {
+                    // Also runs for a batch cancelled before it started
+                    settled.countDown();
+                }
+            };
+            batches.add(task);
+            executor.execute(task);
+        }
+
+        long timeoutMillis = batchTimeout.toMillis();
+        try {
+            for (Future<?> batch : batches) {
+                batch.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (ExecutionException | TimeoutException | CancellationException e) {
+            aborted.set(true);
+            if (!settled.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                log.warn("Batches of document {} still running after {}", document.getId(), batchTimeout);
+            }
+            throw e instanceof ExecutionException failure ? failure : new ExecutionException(e);
+        } catch (InterruptedException e) {
+            // Shutting down: the job is resumed on restart, which discards what was stored
+            aborted.set(true);
+            batches.forEach(batch -> batch.cancel(true));
+            throw e;
+        }
+    }
+
+    /**
+     * Retries a failed embedding call with doubling backoff; once the attempts run out the batch
+     * fails and the document is abandoned, rather than storing chunks no vector search can find.
+     */
+    private List<float[]> embed(List<String> batch, AtomicBoolean aborted) throws InterruptedException {
+        long backoffMillis = embedBackoff.toMillis();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return embeddingCache.embedChunks(batch);
+            } catch (RuntimeException e) {
+                if (attempt >= embedAttempts || aborted.get()) {
+                    throw e;
+                }
+                log.warn("Failed to generate embeddings for a batch of {} chunks (attempt {} of {}), retrying in {} ms",
+                        batch.size(), attempt, embedAttempts, backoffMillis, e);
+                Thread.sleep(backoffMillis);
+                backoffMillis *= 2;
+            }
+        }
+    }
+
+    private void persist(Document document, int offset, List<String> batch, List<float[]> embeddings) {
+        List<Long> ids = reserveIds(batch.size());
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(INSERT_CHUNK, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setLong(1, ids.get(i));
+                        ps.setLong(2, document.getId());
+                        ps.setString(3, document.getChatId());
+                        ps.setInt(4, offset + i);
+                        ps.setString(5, batch.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
+                }));
+
+        for (int i = 0; i < ids.size(); i++) {
+            vectorIndexService.add(document.getChatId(), ids.get(i), embeddings.get(i));
+        }
+    }
+
+    /**
+     * Reserves {@code count} chunk IDs the way Hibernate's pooled-lo optimizer does: each
+     * {@code nextval} hands out a block of {@link IdAllocation#BLOCK_SIZE} IDs starting at its value.
+     */
+    private List<Long> reserveIds(int count) {
+        int blocks = (count + IdAllocation.BLOCK_SIZE - 1) / IdAllocation.BLOCK_SIZE;
+        List<Long> ids = new ArrayList<>(count);
+        for (long start : jdbcTemplate.queryForList(RESERVE_ID_BLOCKS, Long.class, blocks)) {
+            for (int i = 0; i < IdAllocation.BLOCK_SIZE && ids.size() < count; i++) {
+                ids.add(start + i);
+            }
+        }
+        return ids;
+    }
+
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        /**
+         * Called from worker threads after each persisted batch.
+         */
+        void onProgress(int embedded, int total);
+    }
+}
@@ -0,0 +1,254 @@
+package me.medev.chatbotservice.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import me.medev.chatbotservice.entity.Document;
+import me.medev.chatbotservice.entity.IngestionJob;
+import me.medev.chatbotservice.entity.IngestionStatus;
+import me.medev.chatbotservice.repository.IngestionJobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.generics.TelegramClient;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Durable queue of PDF ingestion jobs, persisted in {@code ingestion_jobs} and processed
+ * off the Telegram update thread by a small worker pool.
+ * <p>
+ * Scheduling is round-robin across chats: a chat has at most one job in flight and goes
+ * to the back of the line after each job, so one user's batch of uploads cannot starve others.
+ * Unfinished jobs are re-queued on startup. A job records its document before embedding
+ * starts, so a job interrupted mid-way indexes into the same document again rather than
+ * leaving a second, partial copy of its chunks behind.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IngestionJobService {
+
+    private static final List<IngestionStatus> UNFINISHED =
+            List.of(IngestionStatus.QUEUED, IngestionStatus.EXTRACTING, IngestionStatus.EMBEDDING);
+
+    private final IngestionJobRepository jobRepository;
+    private final RagService ragService;
+    private final TelegramClient telegramClient;
+
+    @Value("${rag.ingestion.workers:2}")
+    private int workerCount;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition chatReady = lock.newCondition();
+    private final Map<String, ArrayDeque<Long>> pendingByChat = new HashMap<>();
+    private final ArrayDeque<String> readyChats = new ArrayDeque<>();
+    private final Set<String> activeChats = new HashSet<>();
+    private final Set<Long> queuedJobIds = new HashSet<>();
+    private final List<Thread> workers = new ArrayList<>();
+
+    public IngestionJob submit(String chatId, String fileId, String fileName) {
+        LocalDateTime now = LocalDateTime.now();
+        IngestionJob job = jobRepository.save(IngestionJob.builder()
+                .chatId(chatId)
+                .fileId(fileId)
+                .fileName(fileName)
+                .status(IngestionStatus.QUEUED)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        enqueue(job);
+        return job;
+    }
+
+    public List<IngestionJob> listJobs(String chatId) {
+        return jobRepository.findByChatIdOrderByCreatedAtDesc(chatId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (IngestionJob job : jobRepository.findByStatusInOrderByCreatedAtAsc(UNFINISHED)) {
+            if (job.getStatus() != IngestionStatus.QUEUED) {
+                // Interrupted by a restart; process() empties the half-built document first
+                updateStatus(job, IngestionStatus.QUEUED);
+            }
+            enqueue(job);
+        }
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::runWorker, "ingestion-" + (i + 1));
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.forEach(Thread::interrupt);
+    }
+
+    private void enqueue(IngestionJob job) {
+        lock.lock();
+        try {
+            if (!queuedJobIds.add(job.getId())) {
+                return;
+            }
+            ArrayDeque<Long> pending = pendingByChat.computeIfAbsent(job.getChatId(), id -> new ArrayDeque<>());
+            boolean wasIdle = pending.isEmpty() && !activeChats.contains(job.getChatId());
+            pending.add(job.getId());
+            if (wasIdle) {
+                readyChats.add(job.getChatId());
+                chatReady.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runWorker() {
+        while (!Thread.currentThread().isInterrupted()) {
+            String chatId;
+            Long jobId;
+            lock.lock();
+            try {
+                while (readyChats.isEmpty()) {
+                    chatReady.await();
+                }
+                chatId = readyChats.poll();
+                jobId = pendingByChat.get(chatId).poll();
+                queuedJobIds.remove(jobId);
+                activeChats.add(chatId);
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                jobRepository.findById(jobId).ifPresent(this::process);
+            } catch (RuntimeException e) {
+                // Typically the database failing while recording the job's failure
+                log.error("Ingestion job {} could not be processed", jobId, e);
+            } finally {
+                release(chatId);
+            }
+        }
+    }
+
+    private void release(String chatId) {
+        lock.lock();
+        try {
+            activeChats.remove(chatId);
+            ArrayDeque<Long> pending = pendingByChat.get(chatId);
+            if (pending.isEmpty()) {
+                pendingByChat.remove(chatId);
+            } else {
+                readyChats.add(chatId);
+                chatReady.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void process(IngestionJob job) {
+        String chatId = job.getChatId();
+        try {
+            updateStatus(job, IngestionStatus.EXTRACTING);
+            String pdfText = ragService.downloadPdfText(job.getFileId(), telegramClient);
+            if (pdfText.isEmpty()) {
+                fail(job, "⚠️ Could not extract text from the PDF. It might be scanned or image-based.");
+                return;
+            }
+
+            Document document = ragService.prepareDocument(chatId, job.getFileName(), job.getDocumentId());
+            job.setDocumentId(document.getId());
+            // Progress of an interrupted attempt is discarded with its chunks
+            job.setEmbeddedChunks(0);
+            updateStatus(job, IngestionStatus.EMBEDDING);
+            document = ragService.indexDocument(document, pdfText, progressReporter(job));
+
+            job.setChunkCount(document.getChunkCount());
+            job.setEmbeddedChunks(document.getChunkCount());
+            updateStatus(job, IngestionStatus.DONE);
+            sendMessage(chatId, String.format(
+                    "✅ Successfully processed **%s**\n\n📊 Extracted %d text chunks\n\n💡 You can now ask questions about this document!",
+                    job.getFileName(), document.getChunkCount()));
+        } catch (InterruptedException e) {
+            // Shutting down: the job keeps its unfinished status and is resumed on the next start
+            log.info("Ingestion job {} interrupted in status {}", job.getId(), job.getStatus());
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Error processing PDF for job {}", job.getId(), e);
+            fail(job, "❌ Failed to process PDF: " + e.getMessage());
+        }
+    }
+
+    private EmbeddingPipeline.ProgressListener progressReporter(IngestionJob job) {
+        String chatId = job.getChatId();
+        Integer messageId = sendMessage(chatId, "⏳ Embedding chunks...");
+        AtomicInteger lastReported = new AtomicInteger();
+        return (embedded, total) -> {
+            // Report at most once per 10% to stay under Telegram's edit rate limits
+            int percent = embedded * 100 / total;
+            int previous = lastReported.get();
+            if (percent - previous < 10 && embedded < total) {
+                return;
+            }
+            if (!lastReported.compareAndSet(previous, percent)) {
+                return;
+            }
+            // Runs on several embedding threads at once, so it leaves the job entity alone
+            jobRepository.updateProgress(job.getId(), embedded, total, LocalDateTime.now());
+            if (messageId == null) {
+                return;
+            }
+            try {
+                telegramClient.execute(EditMessageText.builder()
+                        .chatId(chatId)
+                        .messageId(messageId)
+                        .text(String.format("⏳ Embedded %d/%d chunks (%d%%)", embedded, total, percent))
+                        .build());
+            } catch (Exception e) {
+                log.debug("Failed to update ingestion progress for chat {}", chatId, e);
+            }
+        };
+    }
+
+    private void fail(IngestionJob job, String message) {
+        job.setError(message);
+        updateStatus(job, IngestionStatus.FAILED);
+        sendMessage(job.getChatId(), message);
+    }
+
+    private void updateStatus(IngestionJob job, IngestionStatus status) {
+        job.setStatus(status);
+        job.setUpdatedAt(LocalDateTime.now());
+        jobRepository.save(job);
+    }
+
+    private Integer sendMessage(String chatId, String text) {
+        try {
+            return telegramClient.execute(SendMessage.builder()
+                    .chatId(chatId)
+                    .text(text)
+                    .build()).getMessageId();
+        } catch (Exception e) {
+            log.error("Failed to send message to chat {}", chatId, e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package me.medev.chatbotservice.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of LLM calls in flight across all chats ({@code chatbot.llm.max-concurrent-calls}),
+ * so parallel chat dispatch does not turn into a burst against the provider's rate limits.
+ * Time spent waiting for a slot and in the call itself are recorded separately
+ * ({@code chatbot.llm.wait}, {@code chatbot.llm.call}).
+ * <p>
+ * Streaming calls wait for their slot on the limiter's own threads, so a saturated provider
+ * queues subscriptions here rather than blocking the threads that subscribe, such as servlet
+ * request threads.
+ */
+@Component
+public class LlmCallLimiter {
+
+    private final Semaphore permits;
+    private final Scheduler scheduler;
+    private final Timer wait;
+    private final Timer calls;
+
+    public LlmCallLimiter(@Value("${chatbot.llm.max-concurrent-calls:8}") int maxConcurrentCalls,
+                          MeterRegistry registry) {
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+        // One thread per slot: a thread only blocks while every slot is taken
+        this.scheduler = Schedulers.newBoundedElastic(maxConcurrentCalls, Integer.MAX_VALUE, "llm-call");
+        Gauge.builder("chatbot.llm.calls.waiting", permits, Semaphore::getQueueLength)
+                .description("Chat turns waiting for an LLM call slot")
+                .register(registry);
+        Gauge.builder("chatbot.llm.calls.available", permits, Semaphore::availablePermits)
+                .register(registry);
+        this.wait = Timer.builder("chatbot.llm.wait")
+                .description("Time a chat turn waited for an LLM call slot")
+                .register(registry);
+        this.calls = Timer.builder("chatbot.llm.call")
+                .description("Duration of blocking LLM calls")
+                .register(registry);
+    }
+
+    public <T> T call(Supplier<T> call) {
+        acquire();
+        try {
+            return calls.record(call);
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Holds a slot from subscription until the stream terminates or is cancelled, or until
+     * {@code call} throws instead of returning a stream.
+     */
+    public <T> Flux<T> stream(Supplier<Flux<T>> call) {
+        return Flux.using(() -> {
+            acquire();
+            return permits;
+        }, permit -> call.get(), permit -> release()).subscribeOn(scheduler);
+    }
+
+    public void acquire() {
+        long start = System.nanoTime();
+        try {
+            permits.acquire();
+            wait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an LLM call slot", e);
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.dispose();
+    }
+}
@@ -4,12 +4,12 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import me.medev.chatbotservice.entity.Document;
 import me.medev.chatbotservice.entity.DocumentChunk;
+import me.medev.chatbotservice.rag.TopKSelector;
 import me.medev.chatbotservice.repository.DocumentChunkRepository;
 import me.medev.chatbotservice.repository.DocumentRepository;
 import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
-import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.methods.GetFile;
@@ -20,8 +20,10 @@ import java.io.InputStream;
 import java.net.URI;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 @Slf4j
 @Service
@@ -30,18 +32,23 @@ public class RagService {
 
     private final DocumentRepository documentRepository;
     private final DocumentChunkRepository chunkRepository;
-    private final EmbeddingModel embeddingModel;
+    private final EmbeddingCache embeddingCache;
+    private final VectorIndexService vectorIndexService;
+    private final EmbeddingPipeline embeddingPipeline;
+    private final SemanticResponseCache responseCache;
 
     @Value("${telegram.bot.token}")
     private String botToken;
 
     private static final int CHUNK_SIZE = 500;
     private static final int CHUNK_OVERLAP = 100;
+    private static final int TOP_K = 3;
+    private static final float RELEVANCE_THRESHOLD = 0.3f;
 
-    public String processPdfFromTelegram(String chatId, String fileId, String fileName, TelegramClient telegramClient)
-            throws Exception {
-        log.info("Processing PDF {} for chat {}", fileName, chatId);
-
+    /**
+     * Downloads a PDF sent to the bot and returns its text (empty for scanned/image-only files).
+     */
+    public String downloadPdfText(String fileId, TelegramClient telegramClient) throws Exception {
         // Get file path from Telegram
         GetFile getFile = new GetFile(fileId);
         File file = telegramClient.execute(getFile);
@@ -49,43 +56,67 @@ public class RagService {
         String fileUrl = "https://api.telegram.org/file/bot" + botToken + "/" + filePath;
 
         // Download and extract text from PDF
-        String pdfText = extractTextFromPdf(fileUrl);
-        if (pdfText.isEmpty()) {
-            return "⚠️ Could not extract text from the PDF. It might be scanned or image-based.";
+        return extractTextFromPdf(fileUrl);
+    }
+
+    /**
+     * Returns the document to index an upload into. {@code documentId} is the document an
+     * interrupted attempt left behind; it is reused once the chunks and vectors it already has
+     * are removed, so that indexing again does not duplicate them.
+     */
+    public Document prepareDocument(String chatId, String fileName, Long documentId) {
+        if (documentId != null) {
+            Document existing = documentRepository.findById(documentId).orElse(null);
+            if (existing != null) {
+                discardChunks(existing);
+                return existing;
+            }
         }
+        return documentRepository.save(Document.builder()
+                .chatId(chatId)
+                .fileName(fileName)
+                .uploadedAt(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Chunks, embeds and stores the text of an uploaded document.
+     */
+    public Document indexDocument(Document document, String text,
+                                  EmbeddingPipeline.ProgressListener listener) throws Exception {
+        log.info("Processing PDF {} for chat {}", document.getFileName(), document.getChatId());
 
         // Split into chunks
-        List<String> chunks = splitIntoChunks(pdfText);
+        List<String> chunks = splitIntoChunks(text);
         log.info("Split PDF into {} chunks", chunks.size());
 
-        // Save document
-        Document document = Document.builder()
-                .chatId(chatId)
-                .fileName(fileName)
-                .uploadedAt(LocalDateTime.now())
-                .chunkCount(chunks.size())
-                .build();
+        document.setChunkCount(chunks.size());
         document = documentRepository.save(document);
 
-        // Generate embeddings and save chunks
-        for (int i = 0; i < chunks.size(); i++) {
-            String chunk = chunks.get(i);
-            float[] embedding = generateEmbedding(chunk);
-
-            DocumentChunk docChunk = DocumentChunk.builder()
-                    .document(document)
-                    .chatId(chatId)
-                    .chunkIndex(i)
-                    .content(chunk)
-                    .embedding(embedding)
-                    .build();
-            chunkRepository.save(docChunk);
-        }
-
-        log.info("Successfully processed PDF {} with {} chunks", fileName, chunks.size());
-        return String.format(
-                "✅ Successfully processed **%s**\n\n📊 Extracted %d text chunks\n\n💡 You can now ask questions about this document!",
-                fileName, chunks.size());
+        // Generate embeddings and save chunks in batches
+        try {
+            embeddingPipeline.ingest(document, chunks, listener);
+        } catch (ExecutionException e) {
+            // Leave nothing behind of a document that failed part way
+            discardChunks(document);
+            documentRepository.delete(document);
+            throw e;
+        } finally {
+            responseCache.invalidate(document.getChatId());
+        }
+
+        log.info("Successfully processed PDF {} with {} chunks", document.getFileName(), chunks.size());
+        return document;
+    }
+
+    private void discardChunks(Document document) {
+        List<Long> chunkIds = chunkRepository.findIdsByDocumentId(document.getId());
+        if (chunkIds.isEmpty()) {
+            return;
+        }
+        log.info("Discarding {} chunks of partially indexed document {}", chunkIds.size(), document.getId());
+        vectorIndexService.remove(document.getChatId(), chunkIds);
+        chunkRepository.deleteByDocumentId(document.getId());
     }
 
     private String extractTextFromPdf(String fileUrl) throws Exception {
@@ -129,83 +160,93 @@ public class RagService {
 
     private float[] generateEmbedding(String text) {
         try {
-            return embeddingModel.embed(text);
+            return embeddingCache.embed(text);
         } catch (Exception e) {
             log.warn("Failed to generate embedding, using empty array", e);
             return new float[0];
         }
     }
 
-    public String searchRelevantContext(String chatId, String query) {
-        List<DocumentChunk> allChunks = chunkRepository.findByChatId(chatId);
-        if (allChunks.isEmpty()) {
-            return "";
+    /**
+     * Retrieves the context for {@code query} together with what identifies it: the query
+     * embedding (empty when embedding failed) and the IDs of the chunks that were selected.
+     */
+    public RetrievedContext retrieve(String chatId, String query) {
+        if (!chunkRepository.existsByChatId(chatId)) {
+            return RetrievedContext.EMPTY;
         }
 
         // Generate query embedding
         float[] queryEmbedding = generateEmbedding(query);
         if (queryEmbedding.length == 0) {
             // Fallback to simple keyword search if embedding fails
-            return simpleKeywordSearch(allChunks, query);
+            return simpleKeywordSearch(chunkRepository.findByChatId(chatId), query);
+        }
+
+        if (vectorIndexService.size(chatId) == 0) {
+            return simpleKeywordSearch(chunkRepository.findByChatId(chatId), query)
+                    .withQueryEmbedding(queryEmbedding);
         }
 
-        // Calculate similarity and get top results
-        List<ChunkWithScore> scoredChunks = allChunks.stream()
-                .filter(chunk -> chunk.getEmbedding() != null && chunk.getEmbedding().length > 0)
-                .map(chunk -> new ChunkWithScore(chunk, cosineSimilarity(queryEmbedding, chunk.getEmbedding())))
-                .sorted(Comparator.comparingDouble(ChunkWithScore::score).reversed())
-                .limit(3)
-                .toList();
+        // Approximate nearest neighbours, then load only the winning chunks
+        TopKSelector top = vectorIndexService.search(chatId, queryEmbedding, TOP_K, RELEVANCE_THRESHOLD);
+        if (top.size() == 0) {
+            return new RetrievedContext(queryEmbedding, List.of(), "");
+        }
 
-        if (scoredChunks.isEmpty()) {
-            return simpleKeywordSearch(allChunks, query);
+        List<Long> relevantIds = new ArrayList<>(top.size());
+        for (int rank = 0; rank < top.size(); rank++) {
+            relevantIds.add(top.id(rank));
+        }
+        Map<Long, DocumentChunk> chunksById = new HashMap<>();
+        for (DocumentChunk chunk : chunkRepository.findAllById(relevantIds)) {
+            chunksById.put(chunk.getId(), chunk);
         }
 
         StringBuilder context = new StringBuilder();
-        for (ChunkWithScore scored : scoredChunks) {
-            if (scored.score > 0.3) { // Threshold for relevance
-                context.append(scored.chunk.getContent()).append("\n\n");
+        for (Long id : relevantIds) {
+            DocumentChunk chunk = chunksById.get(id);
+            if (chunk != null) {
+                context.append(chunk.getContent()).append("\n\n");
             }
         }
 
-        return context.toString();
+        return new RetrievedContext(queryEmbedding, relevantIds, context.toString());
     }
 
-    private String simpleKeywordSearch(List<DocumentChunk> chunks, String query) {
+    private RetrievedContext simpleKeywordSearch(List<DocumentChunk> chunks, String query) {
         String[] keywords = query.toLowerCase().split("\\s+");
 
-        return chunks.stream()
-                .filter(chunk -> {
-                    String content = chunk.getContent().toLowerCase();
-                    for (String keyword : keywords) {
-                        if (keyword.length() > 3 && content.contains(keyword)) {
-                            return true;
-                        }
-                    }
-                    return false;
-                })
-                .limit(3)
-                .map(DocumentChunk::getContent)
-                .reduce("", (a, b) -> a + "\n\n" + b);
+        // Rank by number of matching keywords; ids are chunk positions and the selector ranks the lower id first on ties, so ties keep document order
+        TopKSelector top = new TopKSelector(TOP_K, 0);
+        for (int i = 0; i < chunks.size(); i++) {
+            String content = chunks.get(i).getContent().toLowerCase();
+            int matches = 0;
+            for (String keyword : keywords) {
+                if (keyword.length() > 3 && content.contains(keyword)) {
+                    matches++;
+                }
+            }
+            top.offer(i, matches);
+        }
+        top.sortDescending();
+
+        List<Long> chunkIds = new ArrayList<>(top.size());
+        StringBuilder context = new StringBuilder();
+        for (int rank = 0; rank < top.size(); rank++) {
+            DocumentChunk chunk = chunks.get((int) top.id(rank));
+            chunkIds.add(chunk.getId());
+            context.append("\n\n").append(chunk.getContent());
+        }
+        return new RetrievedContext(new float[0], chunkIds, context.toString());
     }
 
-    private double cosineSimilarity(float[] a, float[] b) {
-        if (a.length != b.length || a.length == 0)
-            return 0;
+    public record RetrievedContext(float[] queryEmbedding, List<Long> chunkIds, String text) {
 
-        double dotProduct = 0;
-        double normA = 0;
-        double normB = 0;
+        static final RetrievedContext EMPTY = new RetrievedContext(new float[0], List.of(), "");
 
-        for (int i = 0; i < a.length; i++) {
-            dotProduct += a[i] * b[i];
-            normA += a[i] * a[i];
-            normB += b[i] * b[i];
+        RetrievedContext withQueryEmbedding(float[] embedding) {
+            return new RetrievedContext(embedding, chunkIds, text);
         }
-
-        return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB) + 1e-10);
-    }
-
-    private record ChunkWithScore(DocumentChunk chunk, double score) {
     }
 }
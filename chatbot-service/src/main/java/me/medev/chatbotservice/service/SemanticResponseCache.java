@@ -0,0 +1,143 @@
+package me.medev.chatbotservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import me.medev.chatbotservice.rag.SimilarityKernel;
+import me.medev.chatbotservice.rag.Vectors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Caches LLM answers per chat. A question is answered from the cache when an earlier
+ * one had the same retrieved context (same chunk IDs) and a query embedding whose cosine
+ * similarity is at least {@code chatbot.response-cache.similarity-threshold}, wherever it
+ * came in the conversation. Answers given without any retrieved chunk are not cached: they
+ * depend on the conversation rather than on the documents.
+ * Entries expire after a TTL, each chat keeps its most recently used entries, and the
+ * least recently active chats are dropped first. A chat's entries are invalidated
+ * whenever its documents change.
+ */
+@Service
+public class SemanticResponseCache {
+
+    private final SimilarityKernel similarityKernel;
+    private final boolean enabled;
+    private final float similarityThreshold;
+    private final long ttlNanos;
+    private final int maxEntriesPerChat;
+    private final int maxChats;
+
+    private final LinkedHashMap<String, LinkedHashMap<Long, Entry>> chats = new LinkedHashMap<>(16, 0.75f, true);
+    private long nextEntryId;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public SemanticResponseCache(SimilarityKernel similarityKernel,
+                                 MeterRegistry registry,
+                                 @Value("${chatbot.response-cache.enabled:true}") boolean enabled,
+                                 @Value("${chatbot.response-cache.similarity-threshold:0.95}") float similarityThreshold,
+                                 @Value("${chatbot.response-cache.ttl:1h}") Duration ttl,
+                                 @Value("${chatbot.response-cache.max-entries-per-chat:100}") int maxEntriesPerChat,
+                                 @Value("${chatbot.response-cache.max-chats:1000}") int maxChats) {
+        this.similarityKernel = similarityKernel;
+        this.enabled = enabled;
+        this.similarityThreshold = similarityThreshold;
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntriesPerChat = maxEntriesPerChat;
+        this.maxChats = maxChats;
+        this.hits = Counter.builder("chatbot.response.cache").tag("result", "hit").register(registry);
+        this.misses = Counter.builder("chatbot.response.cache").tag("result", "miss").register(registry);
+        Gauge.builder("chatbot.response.cache.size", this, SemanticResponseCache::size).register(registry);
+    }
+
+    public Optional<String> lookup(String chatId, RagService.RetrievedContext context) {
+        if (!cacheable(context)) {
+            return Optional.empty();
+        }
+        float[] query = Vectors.normalise(context.queryEmbedding());
+        long now = System.nanoTime();
+
+        synchronized (this) {
+            LinkedHashMap<Long, Entry> entries = chats.get(chatId);
+            Entry best = null;
+            float bestScore = similarityThreshold;
+            if (entries != null) {
+                Iterator<Entry> iterator = entries.values().iterator();
+                while (iterator.hasNext()) {
+                    Entry entry = iterator.next();
+                    if (now - entry.createdAt() > ttlNanos) {
+                        iterator.remove();
+                        continue;
+                    }
+                    if (entry.query().length != query.length || !entry.chunkIds().equals(context.chunkIds())) {
+                        continue;
+                    }
+                    float score = similarityKernel.dot(entry.query(), query);
+                    if (score >= bestScore) {
+                        best = entry;
+                        bestScore = score;
+                    }
+                }
+            }
+
+            if (best == null) {
+                misses.increment();
+                return Optional.empty();
+            }
+            entries.get(best.id()); // refresh LRU position
+            hits.increment();
+            return Optional.of(best.response());
+        }
+    }
+
+    public void put(String chatId, RagService.RetrievedContext context, String response) {
+        if (!cacheable(context) || response == null || response.isBlank()) {
+            return;
+        }
+        float[] query = Vectors.normalise(context.queryEmbedding());
+
+        synchronized (this) {
+            LinkedHashMap<Long, Entry> entries = chats.computeIfAbsent(chatId, id -> new LinkedHashMap<>(16, 0.75f, true));
+            long id = nextEntryId++;
+            entries.put(id, new Entry(id, query, List.copyOf(context.chunkIds()), response, System.nanoTime()));
+            if (entries.size() > maxEntriesPerChat) {
+                Iterator<Long> eldest = entries.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+            if (chats.size() > maxChats) {
+                Iterator<String> eldest = chats.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    public synchronized void invalidate(String chatId) {
+        chats.remove(chatId);
+    }
+
+    private synchronized int size() {
+        int size = 0;
+        for (Map<Long, Entry> entries : chats.values()) {
+            size += entries.size();
+        }
+        return size;
+    }
+
+    private boolean cacheable(RagService.RetrievedContext context) {
+        return enabled && context.queryEmbedding().length > 0 && !context.chunkIds().isEmpty();
+    }
+
+    private record Entry(long id, float[] query, List<Long> chunkIds, String response, long createdAt) {
+    }
+}
@@ -0,0 +1,173 @@
+package me.medev.chatbotservice.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import me.medev.chatbotservice.rag.HnswIndex;
+import me.medev.chatbotservice.rag.MappedEmbeddingStore;
+import me.medev.chatbotservice.rag.SimilarityKernel;
+import me.medev.chatbotservice.rag.TopKSelector;
+import me.medev.chatbotservice.repository.ChunkContentView;
+import me.medev.chatbotservice.repository.ChunkEmbeddingView;
+import me.medev.chatbotservice.repository.DocumentChunkRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps one ANN index per chat. Embeddings live in a memory-mapped file per chat
+ * under {@code rag.store.directory}; the HNSW graph over them is built lazily the
+ * first time a chat is touched and then kept in sync as new chunks are ingested.
+ * When a chat has no mapped file yet (chats that predate the store, or a deleted file),
+ * it is rebuilt from the embeddings still held in {@code document_chunks.embedding}; chunks
+ * ingested since the store was introduced have no embedding in the table and are embedded again.
+ * A build runs on the first caller's thread outside the index map, so it only holds up
+ * callers for the same chat.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class VectorIndexService {
+
+    private final DocumentChunkRepository chunkRepository;
+    private final EmbeddingCache embeddingCache;
+    private final SimilarityKernel similarityKernel;
+    private final Map<String, CompletableFuture<HnswIndex>> indexes = new ConcurrentHashMap<>();
+
+    @Value("${rag.store.directory:./data/embeddings}")
+    private Path storeDirectory;
+
+    @Value("${rag.index.m:16}")
+    private int m;
+
+    @Value("${rag.index.ef-construction:100}")
+    private int efConstruction;
+
+    @Value("${rag.index.ef-search:64}")
+    private int efSearch;
+
+    @Value("${rag.ingestion.batch-size:32}")
+    private int batchSize;
+
+    public TopKSelector search(String chatId, float[] queryEmbedding, int k, float threshold) {
+        return indexFor(chatId).search(queryEmbedding, k, efSearch, threshold);
+    }
+
+    public int size(String chatId) {
+        return indexFor(chatId).size();
+    }
+
+    /**
+     * Stores the embedding of a freshly persisted chunk and links it into the chat's graph.
+     */
+    public void add(String chatId, Long chunkId, float[] embedding) {
+        indexFor(chatId).add(chunkId, embedding);
+    }
+
+    /**
+     * Drops chunks from the chat's graph and its mapped file.
+     */
+    public void remove(String chatId, Collection<Long> chunkIds) {
+        if (!chunkIds.isEmpty()) {
+            indexFor(chatId).remove(chunkIds);
+        }
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        indexes.forEach((chatId, index) -> {
+            if (index.isDone() && !index.isCompletedExceptionally()) {
+                close(chatId, index.join());
+            }
+        });
+        indexes.clear();
+    }
+
+    private HnswIndex indexFor(String chatId) {
+        CompletableFuture<HnswIndex> index = indexes.get(chatId);
+        if (index == null) {
+            CompletableFuture<HnswIndex> building = new CompletableFuture<>();
+            index = indexes.putIfAbsent(chatId, building);
+            if (index == null) {
+                index = building;
+                try {
+                    building.complete(build(chatId));
+                } catch (RuntimeException e) {
+                    // Let the next caller try again
+                    indexes.remove(chatId, building);
+                    building.completeExceptionally(e);
+                }
+            }
+        }
+        try {
+            return index.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private HnswIndex build(String chatId) {
+        MappedEmbeddingStore store = MappedEmbeddingStore.open(storeFile(chatId), similarityKernel);
+        HnswIndex index = new HnswIndex(store, m, efConstruction);
+        if (index.size() == 0) {
+            List<ChunkEmbeddingView> legacy = chunkRepository.findEmbeddingsByChatId(chatId);
+            for (ChunkEmbeddingView view : legacy) {
+                index.add(view.getId(), view.getEmbedding());
+            }
+            reembed(chatId, index);
+            store.force();
+        }
+        log.info("Built vector index for chat {} with {} chunks", chatId, index.size());
+        return index;
+    }
+
+    private void reembed(String chatId, HnswIndex index) {
+        List<ChunkContentView> chunks = chunkRepository.findUnembeddedByChatId(chatId);
+        if (chunks.isEmpty()) {
+            return;
+        }
+        log.info("Re-embedding {} chunks of chat {} missing from the embedding store", chunks.size(), chatId);
+        for (int start = 0; start < chunks.size(); start += batchSize) {
+            List<ChunkContentView> batch = chunks.subList(start, Math.min(start + batchSize, chunks.size()));
+            try {
+                List<float[]> embeddings = embeddingCache.embedChunks(batch.stream().map(ChunkContentView::getContent).toList());
+                for (int i = 0; i < batch.size(); i++) {
+                    index.add(batch.get(i).getId(), embeddings.get(i));
+                }
+            } catch (Exception e) {
+                // Left out of the index; retrieval falls back to keyword search while it is empty
+                log.warn("Failed to re-embed {} chunks of chat {}", batch.size(), chatId, e);
+            }
+        }
+    }
+
+    private Path storeFile(String chatId) {
+        try {
+            Files.createDirectories(storeDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return storeDirectory.resolve(chatId.replaceAll("[^A-Za-z0-9_-]", "_") + ".vec");
+    }
+
+    private void close(String chatId, HnswIndex index) {
+        if (index == null) {
+            return;
+        }
+        try {
+            index.close();
+        } catch (IOException e) {
+            log.warn("Failed to close embedding store for chat {}", chatId, e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package me.medev.chatbotservice.telegram;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs Telegram updates off the polling thread: updates of one chat run strictly in
+ * arrival order, while different chats are processed in parallel on a shared pool.
+ */
+@Slf4j
+@Component
+public class ChatUpdateDispatcher {
+
+    private final ExecutorService executor;
+    private final Map<Long, ArrayDeque<PendingTask>> queues = new ConcurrentHashMap<>();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final Timer lag;
+
+    public ChatUpdateDispatcher(@Value("${chatbot.dispatcher.threads:16}") int threads, MeterRegistry registry) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "chat-dispatch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lag = Timer.builder("chatbot.dispatcher.lag")
+                .description("Time an update waits behind earlier updates of the same chat")
+                .publishPercentileHistogram()
+                .register(registry);
+        Gauge.builder("chatbot.dispatcher.queue.depth", queueDepth, AtomicInteger::get)
+                .description("Updates received but not yet started")
+                .register(registry);
+        Gauge.builder("chatbot.dispatcher.active.chats", queues, Map::size)
+                .description("Chats with an update running or waiting")
+                .register(registry);
+    }
+
+    public void dispatch(Long chatId, Runnable task) {
+        boolean[] schedule = new boolean[1];
+        queueDepth.incrementAndGet();
+        // A chat has a queue only while one of its updates is running; the creator schedules the drain
+        queues.compute(chatId, (id, queue) -> {
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                schedule[0] = true;
+            }
+            queue.add(new PendingTask(task, System.nanoTime()));
+            return queue;
+        });
+        if (schedule[0]) {
+            executor.execute(() -> drain(chatId));
+        }
+    }
+
+    private void drain(Long chatId) {
+        PendingTask next = peek(chatId);
+        while (next != null) {
+            queueDepth.decrementAndGet();
+            lag.record(System.nanoTime() - next.enqueuedAt(), TimeUnit.NANOSECONDS);
+            try {
+                next.task().run();
+            } catch (Exception e) {
+                log.error("Unhandled error processing update for chat {}", chatId, e);
+            }
+            next = advance(chatId);
+        }
+    }
+
+    private PendingTask peek(Long chatId) {
+        PendingTask[] head = new PendingTask[1];
+        queues.computeIfPresent(chatId, (id, queue) -> {
+            head[0] = queue.peek();
+            return queue;
+        });
+        return head[0];
+    }
+
+    /**
+     * Drops the task that just ran and returns the next one, releasing the chat when none is left.
+     */
+    private PendingTask advance(Long chatId) {
+        PendingTask[] next = new PendingTask[1];
+        queues.computeIfPresent(chatId, (id, queue) -> {
+            queue.poll();
+            next[0] = queue.peek();
+            return next[0] == null ? null : queue;
+        });
+        return next[0];
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private record PendingTask(Runnable task, long enqueuedAt) {
+    }
+}
@@ -5,71 +5,66 @@ import lombok.extern.slf4j.Slf4j;
 import me.medev.chatbotservice.service.ChatService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.telegram.telegrambots.client.okhttp.OkHttpTelegramClient;
 import org.telegram.telegrambots.longpolling.util.LongPollingSingleThreadUpdateConsumer;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.message.Message;
 import org.telegram.telegrambots.meta.generics.TelegramClient;
 
+import java.time.Duration;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class TelegramBot implements LongPollingSingleThreadUpdateConsumer {
 
     private final ChatService chatService;
+    private final TelegramClient telegramClient;
+    private final ChatUpdateDispatcher dispatcher;
 
-    @Value("${telegram.bot.token}")
-    private String botToken;
-
-    private TelegramClient telegramClient;
-
-    private TelegramClient getTelegramClient() {
-        if (telegramClient == null) {
-            telegramClient = new OkHttpTelegramClient(botToken);
-        }
-        return telegramClient;
-    }
+    @Value("${chatbot.telegram.edit-interval:1s}")
+    private Duration editInterval;
 
     @Override
     public void consume(Update update) {
         if (update.hasMessage()) {
             Message message = update.getMessage();
-            Long chatId = message.getChatId();
-
-            try {
-                // Handle text messages
-                if (message.hasText()) {
-                    String userMessage = message.getText();
-                    log.info("Received message from chat {}: {}", chatId, userMessage);
-
-                    // Handle commands
-                    if (userMessage.startsWith("/")) {
-                        handleCommand(chatId, userMessage);
-                    } else {
-                        // Process with AI
-                        String response = chatService.chat(chatId.toString(), userMessage);
-                        sendMessage(chatId, response);
-                    }
+            dispatcher.dispatch(message.getChatId(), () -> handleMessage(message));
+        }
+    }
+
+    private void handleMessage(Message message) {
+        Long chatId = message.getChatId();
+
+        try {
+            // Handle text messages
+            if (message.hasText()) {
+                String userMessage = message.getText();
+                log.info("Received message from chat {}: {}", chatId, userMessage);
+
+                // Handle commands
+                if (userMessage.startsWith("/")) {
+                    handleCommand(chatId, userMessage);
+                } else {
+                    // Process with AI, editing the reply as tokens arrive
+                    streamReply(chatId, userMessage);
                 }
-                // Handle document (PDF) uploads
-                else if (message.hasDocument()) {
-                    String fileName = message.getDocument().getFileName();
-                    if (fileName != null && fileName.toLowerCase().endsWith(".pdf")) {
-                        String fileId = message.getDocument().getFileId();
-                        sendMessage(chatId, "📄 Processing PDF: " + fileName + "...");
-
-                        String result = chatService.processPdfDocument(chatId.toString(), fileId, fileName,
-                                getTelegramClient());
-                        sendMessage(chatId, result);
-                    } else {
-                        sendMessage(chatId, "⚠️ Please send a PDF file.");
-                    }
+            }
+            // Handle document (PDF) uploads
+            else if (message.hasDocument()) {
+                String fileName = message.getDocument().getFileName();
+                if (fileName != null && fileName.toLowerCase().endsWith(".pdf")) {
+                    String fileId = message.getDocument().getFileId();
+                    String result = chatService.processPdfDocument(chatId.toString(), fileId, fileName);
+                    sendMessage(chatId, result);
+                } else {
+                    sendMessage(chatId, "⚠️ Please send a PDF file.");
                 }
-            } catch (Exception e) {
-                log.error("Error processing message", e);
-                sendMessage(chatId, "❌ Error: " + e.getMessage());
             }
+        } catch (Exception e) {
+            log.error("Error processing message", e);
+            sendMessage(chatId, "❌ Error: " + e.getMessage());
         }
     }
 
@@ -110,6 +105,58 @@ public class TelegramBot implements LongPollingSingleThreadUpdateConsumer {
         sendMessage(chatId, response);
     }
 
+    private void streamReply(Long chatId, String userMessage) {
+        Integer messageId = sendPlaceholder(chatId);
+        if (messageId == null) {
+            sendMessage(chatId, chatService.chat(chatId.toString(), userMessage));
+            return;
+        }
+
+        StringBuilder reply = new StringBuilder();
+        long[] lastEdit = {System.currentTimeMillis()};
+        chatService.chatStream(chatId.toString(), userMessage)
+                .doOnNext(token -> {
+                    reply.append(token);
+                    long now = System.currentTimeMillis();
+                    // Throttle edits: Telegram rate-limits editMessageText per chat
+                    if (now - lastEdit[0] >= editInterval.toMillis()) {
+                        editMessage(chatId, messageId, reply.substring(0, Math.min(reply.length(), 4000)) + " ▌");
+                        lastEdit[0] = now;
+                    }
+                })
+                .blockLast();
+
+        String text = reply.isEmpty() ? "🤷 No response." : reply.toString();
+        editMessage(chatId, messageId, text.substring(0, Math.min(text.length(), 4000)));
+        if (text.length() > 4000) {
+            sendMessage(chatId, text.substring(4000));
+        }
+    }
+
+    private Integer sendPlaceholder(Long chatId) {
+        try {
+            return telegramClient.execute(SendMessage.builder()
+                    .chatId(chatId.toString())
+                    .text("💭 ...")
+                    .build()).getMessageId();
+        } catch (Exception e) {
+            log.error("Failed to send message to chat {}", chatId, e);
+            return null;
+        }
+    }
+
+    private void editMessage(Long chatId, Integer messageId, String text) {
+        try {
+            telegramClient.execute(EditMessageText.builder()
+                    .chatId(chatId.toString())
+                    .messageId(messageId)
+                    .text(text)
+                    .build());
+        } catch (Exception e) {
+            log.warn("Failed to edit message {} in chat {}", messageId, chatId, e);
+        }
+    }
+
     private void sendMessage(Long chatId, String text) {
         try {
             // Split long messages (Telegram limit is 4096 chars)
@@ -120,14 +167,14 @@ public class TelegramBot implements LongPollingSingleThreadUpdateConsumer {
                             .chatId(chatId.toString())
                             .text(chunk)
                             .build();
-                    getTelegramClient().execute(message);
+                    telegramClient.execute(message);
                 }
             } else {
                 SendMessage message = SendMessage.builder()
                         .chatId(chatId.toString())
                         .text(text)
                         .build();
-                getTelegramClient().execute(message);
+                telegramClient.execute(message);
             }
         } catch (Exception e) {
             log.error("Failed to send message to chat {}", chatId, e);
@@ -0,0 +1,46 @@
+-- Schema previously created by Hibernate (ddl-auto: update). IF NOT EXISTS keeps this a
+-- no-op on databases that already have it.
+
+CREATE SEQUENCE IF NOT EXISTS chat_messages_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS documents_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS document_chunks_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS ingestion_jobs_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS chat_messages (
+    id          BIGINT       NOT NULL PRIMARY KEY,
+    chat_id     VARCHAR(255) NOT NULL,
+    role        VARCHAR(255) NOT NULL,
+    content     TEXT         NOT NULL,
+    "timestamp" TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS documents (
+    id          BIGINT       NOT NULL PRIMARY KEY,
+    chat_id     VARCHAR(255) NOT NULL,
+    file_name   VARCHAR(255) NOT NULL,
+    uploaded_at TIMESTAMP(6) NOT NULL,
+    chunk_count INTEGER
+);
+
+CREATE TABLE IF NOT EXISTS document_chunks (
+    id          BIGINT       NOT NULL PRIMARY KEY,
+    document_id BIGINT       NOT NULL REFERENCES documents (id),
+    chat_id     VARCHAR(255) NOT NULL,
+    chunk_index INTEGER,
+    content     TEXT         NOT NULL,
+    embedding   BYTEA
+);
+
+CREATE TABLE IF NOT EXISTS ingestion_jobs (
+    id              BIGINT       NOT NULL PRIMARY KEY,
+    chat_id         VARCHAR(255) NOT NULL,
+    file_id         VARCHAR(255) NOT NULL,
+    file_name       VARCHAR(255) NOT NULL,
+    status          VARCHAR(255) NOT NULL,
+    document_id     BIGINT,
+    chunk_count     INTEGER,
+    embedded_chunks INTEGER,
+    error           TEXT,
+    created_at      TIMESTAMP(6) NOT NULL,
+    updated_at      TIMESTAMP(6) NOT NULL
+);
@@ -0,0 +1,13 @@
+-- ChatMessageRepository.findTop10ByChatIdOrderByTimestampDesc
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_chat_messages_chat_timestamp ON chat_messages (chat_id, "timestamp" DESC);
+
+-- DocumentChunkRepository.findByChatId / existsByChatId / findEmbeddingsByChatId, findByDocumentId
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_document_chunks_chat ON document_chunks (chat_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_document_chunks_document ON document_chunks (document_id);
+
+-- DocumentRepository.findByChatId
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_documents_chat ON documents (chat_id);
+
+-- IngestionJobRepository.findByChatIdOrderByCreatedAtDesc and findByStatusInOrderByCreatedAtAsc
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_ingestion_jobs_chat_created ON ingestion_jobs (chat_id, created_at DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_ingestion_jobs_status_created ON ingestion_jobs (status, created_at);
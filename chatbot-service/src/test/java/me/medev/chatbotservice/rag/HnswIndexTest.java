@@ -0,0 +1,167 @@
+package me.medev.chatbotservice.rag;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 32;
+    private static final int VECTORS = 2000;
+    private static final int QUERIES = 100;
+    private static final int K = 10;
+    private static final int M = 16;
+    private static final int EF_CONSTRUCTION = 100;
+    private static final int EF_SEARCH = 50;
+
+    @TempDir
+    Path directory;
+
+    private final Random random = new Random(42);
+
+    @Test
+    void recallAgainstBruteForceIsHigh() throws Exception {
+        float[][] vectors = randomVectors(VECTORS);
+        try (HnswIndex index = index(directory.resolve("chat.vec"), vectors)) {
+            assertThat(recall(index, vectors, Set.of())).isGreaterThanOrEqualTo(0.9);
+        }
+    }
+
+    @Test
+    void searchFillsKWithLiveChunksAfterTheNearestAreRemoved() throws Exception {
+        float[][] vectors = randomVectors(VECTORS);
+        try (HnswIndex index = index(directory.resolve("chat.vec"), vectors)) {
+            float[] query = randomVector();
+            // Removing the exact top 20% stays under the compaction threshold, so tombstones sit right where the search starts
+            List<Long> nearest = bruteForce(vectors, query, VECTORS / 5, Set.of());
+            index.remove(nearest);
+
+            TopKSelector top = index.search(query, K, EF_SEARCH, -1);
+
+            assertThat(top.size()).isEqualTo(K);
+            for (int rank = 0; rank < top.size(); rank++) {
+                assertThat(nearest).doesNotContain(top.id(rank));
+            }
+            assertThat(recall(index, vectors, new HashSet<>(nearest))).isGreaterThanOrEqualTo(0.9);
+        }
+    }
+
+    @Test
+    void removedChunksStayOutOfResultsAfterReopening() throws Exception {
+        Path file = directory.resolve("chat.vec");
+        float[][] vectors = randomVectors(VECTORS);
+        Set<Long> removed = new HashSet<>();
+        for (long id = 0; id < VECTORS; id += 10) {
+            removed.add(id);
+        }
+        try (HnswIndex index = index(file, vectors)) {
+            index.remove(removed);
+        }
+
+        try (HnswIndex index = new HnswIndex(MappedEmbeddingStore.open(file, new ScalarSimilarityKernel()), M, EF_CONSTRUCTION)) {
+            assertThat(index.size()).isEqualTo(VECTORS - removed.size());
+            for (int q = 0; q < QUERIES; q++) {
+                TopKSelector top = index.search(randomVector(), K, EF_SEARCH, -1);
+                assertThat(top.size()).isEqualTo(K);
+                for (int rank = 0; rank < top.size(); rank++) {
+                    assertThat(removed).doesNotContain(top.id(rank));
+                }
+            }
+            assertThat(recall(index, vectors, removed)).isGreaterThanOrEqualTo(0.9);
+        }
+    }
+
+    @Test
+    void removingAQuarterOfTheStoreCompactsIt() throws Exception {
+        Path file = directory.resolve("chat.vec");
+        float[][] vectors = randomVectors(VECTORS);
+        Set<Long> removed = new HashSet<>();
+        for (long id = 0; id < VECTORS; id += 2) {
+            removed.add(id);
+        }
+        try (HnswIndex index = index(file, vectors)) {
+            index.remove(removed);
+
+            assertThat(index.size()).isEqualTo(VECTORS / 2);
+            assertThat(recall(index, vectors, removed)).isGreaterThanOrEqualTo(0.9);
+        }
+
+        try (MappedEmbeddingStore store = MappedEmbeddingStore.open(file, new ScalarSimilarityKernel())) {
+            assertThat(store.size()).isEqualTo(VECTORS / 2);
+        }
+    }
+
+    private HnswIndex index(Path file, float[][] vectors) {
+        HnswIndex index = new HnswIndex(MappedEmbeddingStore.open(file, new ScalarSimilarityKernel()), M, EF_CONSTRUCTION);
+        for (int id = 0; id < vectors.length; id++) {
+            index.add(id, vectors[id]);
+        }
+        return index;
+    }
+
+    /**
+     * Share of the exact top {@value #K} over live vectors that the graph search also returns.
+     */
+    private double recall(HnswIndex index, float[][] vectors, Set<Long> removed) {
+        int found = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = randomVector();
+            Set<Long> expected = new HashSet<>(bruteForce(vectors, query, K, removed));
+            TopKSelector top = index.search(query, K, EF_SEARCH, -1);
+            for (int rank = 0; rank < top.size(); rank++) {
+                if (expected.contains(top.id(rank))) {
+                    found++;
+                }
+            }
+        }
+        return (double) found / (QUERIES * K);
+    }
+
+    private static List<Long> bruteForce(float[][] vectors, float[] query, int k, Set<Long> removed) {
+        TopKSelector selector = new TopKSelector(k, -2);
+        float[] normalised = Vectors.normalise(query);
+        for (int id = 0; id < vectors.length; id++) {
+            if (!removed.contains((long) id)) {
+                selector.offer(id, dot(Vectors.normalise(vectors[id]), normalised));
+            }
+        }
+        selector.sortDescending();
+        List<Long> ids = new ArrayList<>();
+        for (int rank = 0; rank < selector.size(); rank++) {
+            ids.add(selector.id(rank));
+        }
+        return ids;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private float[][] randomVectors(int count) {
+        float[][] vectors = new float[count][];
+        for (int i = 0; i < count; i++) {
+            vectors[i] = randomVector();
+        }
+        return vectors;
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,157 @@
+package me.medev.chatbotservice.rag;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedEmbeddingStoreTest {
+
+    private static final int DIMENSION = 8;
+    private static final int HEADER_SIZE = 16;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopenedStoreHasTheSameVectors() throws Exception {
+        Path file = directory.resolve("chat.vec");
+        try (MappedEmbeddingStore store = MappedEmbeddingStore.open(file, new ScalarSimilarityKernel())) {
+            for (long id = 1; id <= 3000; id++) {
+                store.append(id, vector(id));
+            }
+        }
+
+        try (MappedEmbeddingStore store = MappedEmbeddingStore.open(file, new ScalarSimilarityKernel())) {
+            assertThat(store.size()).isEqualTo(3000);
+            assertThat(store.dimension()).isEqualTo(DIMENSION);
+            int slot = store.slot(1234);
+            assertThat(store.id(slot)).isEqualTo(1234);
+            assertThat(store.dot(slot, unit(0))).isEqualTo(1234);
+        }
+    }
+
+    @Test
+    void appendingAStoredIdReturnsItsSlot() throws Exception {
+        try (MappedEmbeddingStore store = MappedEmbeddingStore.open(directory.resolve("chat.vec"), new ScalarSimilarityKernel())) {
+            int slot = store.append(7, vector(7));
+
+            assertThat(store.append(7, vector(8))).isEqualTo(slot);
+            assertThat(store.size()).isEqualTo(1);
+            assertThatThrownBy(() -> store.append(9, new float[DIMENSION + 1]))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void removedVectorsStayRemovedAfterReopening() throws Exception {
+        Path file = directory.resolve("chat.vec");
+        try (MappedEmbeddingStore store = MappedEmbeddingStore.open(file, new ScalarSimilarityKernel())) {
+            for (long id = 1; id <= 10; id++) {
+                store.append(id, vector(id));
+            }
+            assertThat(store.remove(4)).isTrue();
+            assertThat(store.remove(4)).isFalse();
+        }
+
+        try (MappedEmbeddingStore store = MappedEmbeddingStore.open(file, new ScalarSimilarityKernel())) {
+            assertThat(store.slot(4)).isEqualTo(-1);
+            assertThat(store.id(3)).isEqualTo(MappedEmbeddingStore.DELETED);
+            assertThat(store.slot(5)).isEqualTo(4);
+        }
+    }
+
+    @Test
+    void vectorsSpanSeveralSegments() throws Exception {
+        Path file = directory.resolve("chat.vec");
+        // 10 records per segment
+        long segmentBytes = 10L * (Long.BYTES + DIMENSION * Float.BYTES);
+        try (MappedEmbeddingStore store = MappedEmbeddingStore.open(file, new ScalarSimilarityKernel(), segmentBytes)) {
+            for (long id = 1; id <= 35; id++) {
+                store.append(id, vector(id));
+            }
+            assertThat(store.dot(store.slot(9), store.slot(31))).isEqualTo(9 * 31 + 7);
+        }
+
+        try (MappedEmbeddingStore store = MappedEmbeddingStore.open(file, new ScalarSimilarityKernel(), segmentBytes)) {
+            assertThat(store.size()).isEqualTo(35);
+            for (long id = 1; id <= 35; id++) {
+                assertThat(store.dot(store.slot(id), unit(0))).isEqualTo(id);
+            }
+        }
+    }
+
+    @Test
+    void compactionMovesLiveVectorsOverDeletedSlots() throws Exception {
+        Path file = directory.resolve("chat.vec");
+        try (MappedEmbeddingStore store = MappedEmbeddingStore.open(file, new ScalarSimilarityKernel())) {
+            for (long id = 1; id <= 10; id++) {
+                store.append(id, vector(id));
+            }
+            for (long id = 1; id <= 10; id += 2) {
+                store.remove(id);
+            }
+
+            store.compact();
+
+            assertThat(store.size()).isEqualTo(5);
+            for (int slot = 0; slot < 5; slot++) {
+                long id = 2L * (slot + 1);
+                assertThat(store.id(slot)).isEqualTo(id);
+                assertThat(store.slot(id)).isEqualTo(slot);
+                assertThat(store.dot(slot, unit(0))).isEqualTo(id);
+            }
+            store.append(11, vector(11));
+            assertThat(store.slot(11)).isEqualTo(5);
+        }
+
+        try (MappedEmbeddingStore store = MappedEmbeddingStore.open(file, new ScalarSimilarityKernel())) {
+            assertThat(store.size()).isEqualTo(6);
+            assertThat(store.dot(store.slot(8), unit(0))).isEqualTo(8);
+        }
+    }
+
+    @Test
+    void loadingKeepsOneCopyOfAVectorLeftTwiceByAnInterruptedCompaction() throws Exception {
+        Path file = directory.resolve("chat.vec");
+        try (MappedEmbeddingStore store = MappedEmbeddingStore.open(file, new ScalarSimilarityKernel())) {
+            store.append(1, vector(1));
+            store.append(2, vector(2));
+        }
+        // Slot 1 copied over slot 0, crash before slot 1 was marked deleted
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).order(ByteOrder.nativeOrder()).putLong(0, 2), HEADER_SIZE);
+        }
+
+        try (MappedEmbeddingStore store = MappedEmbeddingStore.open(file, new ScalarSimilarityKernel())) {
+            assertThat(store.slot(1)).isEqualTo(-1);
+            assertThat(store.slot(2)).isEqualTo(1);
+            assertThat(store.id(0)).isEqualTo(MappedEmbeddingStore.DELETED);
+        }
+    }
+
+    /**
+     * First component is the ID, the rest are 1, so the dot product of two vectors is {@code a * b + 7}.
+     */
+    private static float[] vector(long id) {
+        float[] vector = new float[DIMENSION];
+        vector[0] = id;
+        for (int i = 1; i < DIMENSION; i++) {
+            vector[i] = 1;
+        }
+        return vector;
+    }
+
+    private static float[] unit(int axis) {
+        float[] vector = new float[DIMENSION];
+        vector[axis] = 1;
+        return vector;
+    }
+}
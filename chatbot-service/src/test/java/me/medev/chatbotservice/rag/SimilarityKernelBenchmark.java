@@ -0,0 +1,131 @@
+package me.medev.chatbotservice.rag;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scores a query against {@link #CHUNKS} stored embeddings, the way retrieval scans a chat:
+ * the cosine similarity {@code RagService} used before the kernels were introduced, against
+ * the scalar and Vector API kernels on heap arrays and on a native-order buffer.
+ * <p>
+ * Run with
+ * {@code mvn -pl chatbot-service test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+ * -Dexec.args="-cp %classpath org.openjdk.jmh.Main SimilarityKernelBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class SimilarityKernelBenchmark {
+
+    private static final int CHUNKS = 1024;
+
+    @Param({"384", "768", "1536"})
+    private int dimension;
+
+    private float[][] raw;
+    private float[][] normalised;
+    private ByteBuffer mapped;
+    private float[] query;
+    private float[] normalisedQuery;
+
+    private SimilarityKernel scalar;
+    private SimilarityKernel vector;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        raw = new float[CHUNKS][];
+        normalised = new float[CHUNKS][];
+        mapped = ByteBuffer.allocateDirect(CHUNKS * dimension * Float.BYTES).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < CHUNKS; i++) {
+            raw[i] = randomVector(random);
+            normalised[i] = Vectors.normalise(raw[i]);
+            for (float v : normalised[i]) {
+                mapped.putFloat(v);
+            }
+        }
+        query = randomVector(random);
+        normalisedQuery = Vectors.normalise(query);
+        scalar = new ScalarSimilarityKernel();
+        vector = new VectorApiSimilarityKernel();
+    }
+
+    @Benchmark
+    public void baselineCosine(Blackhole blackhole) {
+        for (float[] stored : raw) {
+            blackhole.consume(cosineSimilarity(query, stored));
+        }
+    }
+
+    @Benchmark
+    public void scalarHeap(Blackhole blackhole) {
+        for (float[] stored : normalised) {
+            blackhole.consume(scalar.dot(normalisedQuery, stored));
+        }
+    }
+
+    @Benchmark
+    public void vectorHeap(Blackhole blackhole) {
+        for (float[] stored : normalised) {
+            blackhole.consume(vector.dot(normalisedQuery, stored));
+        }
+    }
+
+    @Benchmark
+    public void scalarBuffer(Blackhole blackhole) {
+        for (int i = 0; i < CHUNKS; i++) {
+            blackhole.consume(scalar.dot(mapped, i * dimension * Float.BYTES, normalisedQuery));
+        }
+    }
+
+    @Benchmark
+    public void vectorBuffer(Blackhole blackhole) {
+        for (int i = 0; i < CHUNKS; i++) {
+            blackhole.consume(vector.dot(mapped, i * dimension * Float.BYTES, normalisedQuery));
+        }
+    }
+
+    private float[] randomVector(Random random) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    // RagService.cosineSimilarity before the similarity kernels
+    private static double cosineSimilarity(float[] a, float[] b) {
+        if (a.length != b.length || a.length == 0)
+            return 0;
+
+        double dotProduct = 0;
+        double normA = 0;
+        double normB = 0;
+
+        for (int i = 0; i < a.length; i++) {
+            dotProduct += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+
+        return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB) + 1e-10);
+    }
+}
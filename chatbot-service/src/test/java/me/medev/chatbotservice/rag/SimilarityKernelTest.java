@@ -0,0 +1,67 @@
+package me.medev.chatbotservice.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class SimilarityKernelTest {
+
+    private static final int DIMENSION = 1536;
+
+    @Test
+    void scalarKernelKeepsSmallTermsNextToLargeOnes() {
+        // Every fourth product lands in the same accumulator: 1e8, then 1s, then -1e8
+        float[] a = new float[DIMENSION];
+        float[] b = new float[DIMENSION];
+        Arrays.fill(a, 1);
+        Arrays.fill(b, 1);
+        a[0] = 1e4f;
+        b[0] = 1e4f;
+        a[DIMENSION - 4] = 1e4f;
+        b[DIMENSION - 4] = -1e4f;
+
+        SimilarityKernel kernel = new ScalarSimilarityKernel();
+
+        assertThat(kernel.dot(a, b)).isEqualTo(DIMENSION - 2);
+        assertThat(kernel.dot(buffer(a), 0, b)).isEqualTo(DIMENSION - 2);
+        assertThat(kernel.dot(buffer(a), 0, buffer(b), 0, DIMENSION)).isEqualTo(DIMENSION - 2);
+    }
+
+    @Test
+    void vectorKernelMatchesScalarKernel() {
+        Random random = new Random(7);
+        SimilarityKernel scalar = new ScalarSimilarityKernel();
+        SimilarityKernel vector = new VectorApiSimilarityKernel();
+        for (int dimension : new int[]{384, 768, 1536, 1537}) {
+            float[] a = Vectors.normalise(randomVector(random, dimension));
+            float[] b = Vectors.normalise(randomVector(random, dimension));
+            float expected = scalar.dot(a, b);
+
+            assertThat(vector.dot(a, b)).isCloseTo(expected, within(1e-6f));
+            assertThat(vector.dot(buffer(a), 0, b)).isCloseTo(expected, within(1e-6f));
+            assertThat(vector.dot(buffer(a), 0, buffer(b), 0, dimension)).isCloseTo(expected, within(1e-6f));
+        }
+    }
+
+    private static float[] randomVector(Random random, int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static ByteBuffer buffer(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(vector.length * Float.BYTES).order(ByteOrder.nativeOrder());
+        for (float v : vector) {
+            buffer.putFloat(v);
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,89 @@
+package me.medev.chatbotservice.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TopKSelectorTest {
+
+    @Test
+    void keepsTheBestKBestFirst() {
+        Random random = new Random(11);
+        float[] scores = new float[1000];
+        TopKSelector selector = new TopKSelector(10, -1);
+        for (int id = 0; id < scores.length; id++) {
+            scores[id] = random.nextFloat();
+            selector.offer(id, scores[id]);
+        }
+        selector.sortDescending();
+
+        List<Float> expected = new ArrayList<>();
+        for (float score : scores) {
+            expected.add(score);
+        }
+        expected.sort((a, b) -> Float.compare(b, a));
+
+        assertThat(selector.size()).isEqualTo(10);
+        for (int rank = 0; rank < 10; rank++) {
+            assertThat(selector.score(rank)).isEqualTo(expected.get(rank));
+            assertThat(scores[(int) selector.id(rank)]).isEqualTo(selector.score(rank));
+        }
+    }
+
+    @Test
+    void rejectsScoresAtOrBelowTheThreshold() {
+        TopKSelector selector = new TopKSelector(3, 0.5f);
+
+        assertThat(selector.offer(1, 0.5f)).isFalse();
+        assertThat(selector.offer(2, 0.2f)).isFalse();
+        assertThat(selector.offer(3, 0.7f)).isTrue();
+        assertThat(selector.floor()).isEqualTo(0.5f);
+
+        selector.sortDescending();
+        assertThat(selector.size()).isEqualTo(1);
+        assertThat(selector.id(0)).isEqualTo(3);
+    }
+
+    @Test
+    void floorIsTheLowestKeptScoreOnceFull() {
+        TopKSelector selector = new TopKSelector(2, 0);
+        selector.offer(1, 0.3f);
+        selector.offer(2, 0.9f);
+        assertThat(selector.floor()).isEqualTo(0.3f);
+
+        assertThat(selector.offer(3, 0.2f)).isFalse();
+        assertThat(selector.offer(4, 0.6f)).isTrue();
+        assertThat(selector.floor()).isEqualTo(0.6f);
+    }
+
+    @Test
+    void equalScoresRankTheLowerIdFirstWhateverTheOfferOrder() {
+        TopKSelector ascending = new TopKSelector(3, 0);
+        TopKSelector descending = new TopKSelector(3, 0);
+        for (int id = 0; id < 8; id++) {
+            ascending.offer(id, id == 5 ? 2 : 1);
+            descending.offer(7 - id, 7 - id == 5 ? 2 : 1);
+        }
+        ascending.sortDescending();
+        descending.sortDescending();
+
+        for (TopKSelector selector : List.of(ascending, descending)) {
+            assertThat(selector.size()).isEqualTo(3);
+            assertThat(List.of(selector.id(0), selector.id(1), selector.id(2))).containsExactly(5L, 0L, 1L);
+        }
+    }
+
+    @Test
+    void refusesOffersOnceSorted() {
+        TopKSelector selector = new TopKSelector(2, 0);
+        selector.offer(1, 0.3f);
+        selector.sortDescending();
+
+        assertThatThrownBy(() -> selector.offer(2, 0.9f)).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,123 @@
+package me.medev.chatbotservice.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Checks that the queries behind the repositories' per-chat and per-document lookups are
+ * planned on the indexes from the migrations. Runs the migrations against an embedded
+ * Postgres, fills the tables with enough rows for an index to pay off and compares the
+ * {@code EXPLAIN} output.
+ */
+class HotPathQueryPlanTest {
+
+    private static final String SCHEMA = "chatbot_schema";
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void migrateAndSeed() throws IOException {
+        assumeFalse("root".equals(System.getProperty("user.name")), "Postgres refuses to run as root");
+        postgres = EmbeddedPostgres.start();
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .defaultSchema(SCHEMA)
+                .schemas(SCHEMA)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        DataSource dataSource = postgres.getDatabase("postgres", "postgres", Map.of("currentSchema", SCHEMA));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        // 1000 chats with 100 messages, 10 documents of 10 chunks and 10 mostly finished jobs each
+        jdbcTemplate.update("""
+                INSERT INTO chat_messages (id, chat_id, role, content, "timestamp")
+                SELECT i, 'chat-' || i % 1000, 'user', 'message ' || i, now() - i * interval '1 second'
+                FROM generate_series(1, 100000) AS i""");
+        jdbcTemplate.update("""
+                INSERT INTO documents (id, chat_id, file_name, uploaded_at, chunk_count)
+                SELECT i, 'chat-' || i % 1000, 'document-' || i || '.pdf', now(), 10
+                FROM generate_series(1, 10000) AS i""");
+        jdbcTemplate.update("""
+                INSERT INTO document_chunks (id, document_id, chat_id, chunk_index, content)
+                SELECT i, d.id, d.chat_id, i % 10, 'chunk ' || i
+                FROM generate_series(1, 100000) AS i
+                JOIN documents d ON d.id = (i - 1) / 10 + 1""");
+        jdbcTemplate.update("""
+                INSERT INTO ingestion_jobs (id, chat_id, file_id, file_name, status, created_at, updated_at)
+                SELECT i, 'chat-' || i % 1000, 'file-' || i, 'document-' || i || '.pdf',
+                       CASE WHEN i % 1000 = 0 THEN 'QUEUED' ELSE 'DONE' END,
+                       now() - i * interval '1 minute', now()
+                FROM generate_series(1, 10000) AS i""");
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    void recentMessagesUseChatTimestampIndex() {
+        assertThat(plan("SELECT * FROM chat_messages WHERE chat_id = 'chat-42' ORDER BY \"timestamp\" DESC LIMIT 10"))
+                .contains("idx_chat_messages_chat_timestamp")
+                .doesNotContain("Seq Scan")
+                .doesNotContain("Sort");
+    }
+
+    @Test
+    void chunksOfChatUseChatIndex() {
+        assertThat(plan("SELECT id, embedding FROM document_chunks WHERE chat_id = 'chat-42' AND embedding IS NOT NULL"))
+                .contains("idx_document_chunks_chat")
+                .doesNotContain("Seq Scan");
+        assertThat(plan("SELECT id FROM document_chunks WHERE chat_id = 'chat-42' LIMIT 1"))
+                .contains("idx_document_chunks_chat")
+                .doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void chunksOfDocumentUseDocumentIndex() {
+        assertThat(plan("SELECT id FROM document_chunks WHERE document_id = 42"))
+                .contains("idx_document_chunks_document")
+                .doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void documentsOfChatUseChatIndex() {
+        assertThat(plan("SELECT * FROM documents WHERE chat_id = 'chat-42'"))
+                .contains("idx_documents_chat")
+                .doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void jobsOfChatUseChatCreatedIndex() {
+        assertThat(plan("SELECT * FROM ingestion_jobs WHERE chat_id = 'chat-42' ORDER BY created_at DESC"))
+                .contains("idx_ingestion_jobs_chat_created")
+                .doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void unfinishedJobsUseStatusCreatedIndex() {
+        assertThat(plan("SELECT * FROM ingestion_jobs WHERE status IN ('QUEUED', 'EXTRACTING', 'EMBEDDING') ORDER BY created_at"))
+                .contains("idx_ingestion_jobs_status_created")
+                .doesNotContain("Seq Scan");
+    }
+
+    private static String plan(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+    }
+}
@@ -0,0 +1,123 @@
+package me.medev.chatbotservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import me.medev.chatbotservice.entity.ChatMessage;
+import me.medev.chatbotservice.rag.ScalarSimilarityKernel;
+import me.medev.chatbotservice.repository.ChatMessageRepository;
+import me.medev.chatbotservice.repository.DocumentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatServiceTest {
+
+    private static final String CHAT_ID = "web-user";
+    private static final String QUESTION = "What is the warranty period?";
+
+    private final List<ChatMessage> messages = new ArrayList<>();
+    private final List<String> savingThreads = new ArrayList<>();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ChatClient chatClient;
+    private RagService ragService;
+    private LlmCallLimiter llmCallLimiter;
+    private ChatService chatService;
+
+    @BeforeEach
+    void setUp() {
+        ChatMessageRepository chatMessageRepository = mock(ChatMessageRepository.class);
+        when(chatMessageRepository.findTop10ByChatIdOrderByTimestampDescMutable(CHAT_ID))
+                .thenAnswer(invocation -> {
+                    List<ChatMessage> newestFirst = new ArrayList<>(messages);
+                    Collections.reverse(newestFirst);
+                    return newestFirst;
+                });
+        when(chatMessageRepository.save(any(ChatMessage.class))).thenAnswer(invocation -> {
+            messages.add(invocation.getArgument(0));
+            savingThreads.add(Thread.currentThread().getName());
+            return invocation.getArgument(0);
+        });
+
+        ChatClient.ChatClientRequestSpec request = mock(ChatClient.ChatClientRequestSpec.class, RETURNS_DEEP_STUBS);
+        when(request.call().content()).thenReturn("Two years.");
+        // Emitted on a non-blocking thread, as the HTTP client's event loop does
+        when(request.stream().content())
+                .thenAnswer(invocation -> Flux.just("Two ", "years.").publishOn(Schedulers.parallel()));
+        chatClient = mock(ChatClient.class);
+        when(chatClient.prompt(any(Prompt.class))).thenReturn(request);
+        ChatClient.Builder chatClientBuilder = mock(ChatClient.Builder.class);
+        when(chatClientBuilder.build()).thenReturn(chatClient);
+
+        ragService = mock(RagService.class);
+        McpToolService mcpToolService = mock(McpToolService.class);
+        when(mcpToolService.getAvailableToolsDescription()).thenReturn("");
+        llmCallLimiter = new LlmCallLimiter(2, registry);
+        SemanticResponseCache responseCache = new SemanticResponseCache(new ScalarSimilarityKernel(), registry,
+                true, 0.95f, Duration.ofHours(1), 100, 1000);
+
+        chatService = new ChatService(chatClientBuilder, chatMessageRepository, mock(DocumentRepository.class),
+                ragService, mcpToolService, mock(IngestionJobService.class), llmCallLimiter, responseCache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        llmCallLimiter.shutdown();
+    }
+
+    @Test
+    void repeatedQuestionInTheSameChatIsAnsweredFromTheCache() {
+        when(ragService.retrieve(CHAT_ID, QUESTION))
+                .thenReturn(new RagService.RetrievedContext(new float[]{0.6f, 0.8f}, List.of(7L, 3L), "Warranty: two years."));
+
+        assertThat(chatService.chat(CHAT_ID, QUESTION)).isEqualTo("Two years.");
+        assertThat(chatService.chat(CHAT_ID, QUESTION)).isEqualTo("Two years.");
+
+        verify(chatClient, times(1)).prompt(any(Prompt.class));
+        assertThat(registry.counter("chatbot.response.cache", "result", "hit").count()).isEqualTo(1);
+        assertThat(messages).extracting(ChatMessage::getRole).containsExactly("user", "assistant", "user", "assistant");
+    }
+
+    @Test
+    void questionWithDifferentContextIsNotAnsweredFromTheCache() {
+        when(ragService.retrieve(CHAT_ID, QUESTION))
+                .thenReturn(new RagService.RetrievedContext(new float[]{0.6f, 0.8f}, List.of(7L, 3L), "Warranty: two years."))
+                .thenReturn(new RagService.RetrievedContext(new float[]{0.6f, 0.8f}, List.of(9L), "Warranty: one year."));
+
+        chatService.chat(CHAT_ID, QUESTION);
+        chatService.chat(CHAT_ID, QUESTION);
+
+        verify(chatClient, times(2)).prompt(any(Prompt.class));
+        assertThat(registry.counter("chatbot.response.cache", "result", "hit").count()).isZero();
+    }
+
+    @Test
+    void streamedAnswerIsSavedOffTheEmittingThread() {
+        when(ragService.retrieve(CHAT_ID, QUESTION))
+                .thenReturn(new RagService.RetrievedContext(new float[]{0.6f, 0.8f}, List.of(7L), "Warranty: two years."));
+
+        List<String> tokens = chatService.chatStream(CHAT_ID, QUESTION).collectList().block(Duration.ofSeconds(5));
+
+        assertThat(tokens).containsExactly("Two ", "years.");
+        assertThat(messages).extracting(ChatMessage::getContent).containsExactly(QUESTION, "Two years.");
+        assertThat(savingThreads.get(1)).startsWith("boundedElastic");
+        // Cached once saved
+        assertThat(chatService.chat(CHAT_ID, QUESTION)).isEqualTo("Two years.");
+        assertThat(registry.counter("chatbot.response.cache", "result", "hit").count()).isEqualTo(1);
+    }
+}
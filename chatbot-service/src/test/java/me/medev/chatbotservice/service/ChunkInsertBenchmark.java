@@ -0,0 +1,139 @@
+package me.medev.chatbotservice.service;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import me.medev.common.jpa.IdAllocation;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing one ingestion batch of chunks to an embedded Postgres with the chatbot's schema.
+ * {@code perRow} is what saving each chunk through the repository amounted to: one
+ * auto-committed insert per chunk, each taking its own ID. {@code batched} is
+ * {@link EmbeddingPipeline}: IDs reserved in pooled-lo blocks and a single JDBC batch in one
+ * transaction.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn -pl chatbot-service test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *   -Dexec.args="-cp %classpath org.openjdk.jmh.Main ChunkInsertBenchmark"
+ * </pre>
+ * Postgres refuses to run as root, so run it as an ordinary user.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ChunkInsertBenchmark {
+
+    private static final String INSERT_CHUNK =
+            "INSERT INTO document_chunks (id, document_id, chat_id, chunk_index, content) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_CHUNK_NEXT_ID =
+            "INSERT INTO document_chunks (id, document_id, chat_id, chunk_index, content) VALUES (nextval('document_chunks_seq'), ?, ?, ?, ?)";
+    private static final String RESERVE_ID_BLOCKS =
+            "SELECT nextval('document_chunks_seq') FROM generate_series(1, ?)";
+    private static final long DOCUMENT_ID = 1;
+    private static final String CHAT_ID = "benchmark";
+
+    @Param({"32", "256"})
+    public int batchSize;
+
+    private EmbeddedPostgres postgres;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private List<String> batch;
+
+    @Setup
+    public void setUp() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        DataSource dataSource = postgres.getPostgresDatabase();
+        // As in the service: a transactional lock would block CREATE INDEX CONCURRENTLY
+        Flyway.configure().dataSource(dataSource)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.update("INSERT INTO documents (id, chat_id, file_name, uploaded_at) VALUES (?, ?, 'benchmark.pdf', now())",
+                DOCUMENT_ID, CHAT_ID);
+
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(("Chunk " + i + " of a document, about two hundred words long. ").repeat(20));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void truncate() {
+        jdbcTemplate.execute("TRUNCATE document_chunks");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        postgres.close();
+    }
+
+    @Benchmark
+    public void perRow() {
+        for (int i = 0; i < batch.size(); i++) {
+            jdbcTemplate.update(INSERT_CHUNK_NEXT_ID, DOCUMENT_ID, CHAT_ID, i, batch.get(i));
+        }
+    }
+
+    @Benchmark
+    public void batched() {
+        List<Long> ids = reserveIds(batch.size());
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(INSERT_CHUNK, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setLong(1, ids.get(i));
+                        ps.setLong(2, DOCUMENT_ID);
+                        ps.setString(3, CHAT_ID);
+                        ps.setInt(4, i);
+                        ps.setString(5, batch.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
+                }));
+    }
+
+    private List<Long> reserveIds(int count) {
+        int blocks = (count + IdAllocation.BLOCK_SIZE - 1) / IdAllocation.BLOCK_SIZE;
+        List<Long> ids = new ArrayList<>(count);
+        for (long start : jdbcTemplate.queryForList(RESERVE_ID_BLOCKS, Long.class, blocks)) {
+            for (int i = 0; i < IdAllocation.BLOCK_SIZE && ids.size() < count; i++) {
+                ids.add(start + i);
+            }
+        }
+        return ids;
+    }
+}
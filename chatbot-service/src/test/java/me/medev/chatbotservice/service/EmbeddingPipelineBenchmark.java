@@ -0,0 +1,158 @@
+package me.medev.chatbotservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import me.medev.chatbotservice.config.StubEmbeddingModel;
+import me.medev.chatbotservice.entity.Document;
+import me.medev.chatbotservice.rag.ScalarSimilarityKernel;
+import me.medev.chatbotservice.repository.DocumentChunkRepository;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingesting one document end to end through {@link EmbeddingPipeline}: batch embedding calls to
+ * {@link StubEmbeddingModel}, reserved chunk IDs and JDBC batch inserts into an embedded Postgres
+ * with the chatbot's schema, and linking the vectors into a fresh chat's HNSW graph over a
+ * memory-mapped store. {@code latencyMillis} stands in for the embedding API's round trip, which
+ * {@code concurrency} workers overlap.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn -pl chatbot-service test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *   -Dexec.args="-cp %classpath org.openjdk.jmh.Main EmbeddingPipelineBenchmark"
+ * </pre>
+ * Postgres refuses to run as root, so run it as an ordinary user.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class EmbeddingPipelineBenchmark {
+
+    private static final int CHUNKS = 256;
+    private static final int DIMENSIONS = 384;
+    private static final int BATCH_SIZE = 32;
+
+    @Param({"0", "50"})
+    public long latencyMillis;
+
+    @Param({"1", "4"})
+    public int concurrency;
+
+    private EmbeddedPostgres postgres;
+    private JdbcTemplate jdbcTemplate;
+    private Path storeDirectory;
+    private VectorIndexService vectorIndexService;
+    private EmbeddingPipeline pipeline;
+    private List<String> chunks;
+    private long documents;
+
+    @Setup
+    public void setUp() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        DataSource dataSource = postgres.getPostgresDatabase();
+        // As in the service: a transactional lock would block CREATE INDEX CONCURRENTLY
+        Flyway.configure().dataSource(dataSource)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        storeDirectory = Files.createTempDirectory("embedding-pipeline-benchmark");
+
+        EmbeddingCache embeddingCache = new EmbeddingCache(new StubEmbeddingModel(DIMENSIONS, latencyMillis),
+                new SimpleMeterRegistry(), 64L << 20, Duration.ofHours(6));
+        vectorIndexService = new VectorIndexService(chunkRepository(), embeddingCache, new ScalarSimilarityKernel());
+        ReflectionTestUtils.setField(vectorIndexService, "storeDirectory", storeDirectory);
+        ReflectionTestUtils.setField(vectorIndexService, "m", 16);
+        ReflectionTestUtils.setField(vectorIndexService, "efConstruction", 100);
+        ReflectionTestUtils.setField(vectorIndexService, "batchSize", BATCH_SIZE);
+
+        pipeline = new EmbeddingPipeline(embeddingCache, jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)), vectorIndexService);
+        ReflectionTestUtils.setField(pipeline, "batchSize", BATCH_SIZE);
+        ReflectionTestUtils.setField(pipeline, "concurrency", concurrency);
+        ReflectionTestUtils.setField(pipeline, "batchTimeout", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(pipeline, "embedAttempts", 3);
+        ReflectionTestUtils.setField(pipeline, "embedBackoff", Duration.ofSeconds(1));
+        pipeline.start();
+
+        chunks = new ArrayList<>(CHUNKS);
+        for (int i = 0; i < CHUNKS; i++) {
+            chunks.add(("Chunk " + i + " of a document, about two hundred words long. ").repeat(20));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void clear() {
+        vectorIndexService.closeAll();
+        jdbcTemplate.execute("TRUNCATE document_chunks, documents");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pipeline.stop();
+        FileSystemUtils.deleteRecursively(storeDirectory);
+        postgres.close();
+    }
+
+    /**
+     * Each document goes to a chat of its own, so every invocation builds its graph from empty.
+     */
+    @Benchmark
+    public void ingest() throws InterruptedException, ExecutionException {
+        long id = ++documents;
+        Document document = Document.builder()
+                .id(id)
+                .chatId("benchmark-" + id)
+                .fileName("benchmark.pdf")
+                .uploadedAt(LocalDateTime.now())
+                .chunkCount(CHUNKS)
+                .build();
+        jdbcTemplate.update("INSERT INTO documents (id, chat_id, file_name, uploaded_at, chunk_count) VALUES (?, ?, ?, now(), ?)",
+                document.getId(), document.getChatId(), document.getFileName(), CHUNKS);
+        pipeline.ingest(document, chunks, (embedded, total) -> {
+        });
+    }
+
+    /**
+     * The two lookups {@link VectorIndexService} makes when it builds a chat's index; a new chat has neither.
+     */
+    private static DocumentChunkRepository chunkRepository() {
+        return (DocumentChunkRepository) Proxy.newProxyInstance(DocumentChunkRepository.class.getClassLoader(),
+                new Class<?>[]{DocumentChunkRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findEmbeddingsByChatId", "findUnembeddedByChatId" -> List.of();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
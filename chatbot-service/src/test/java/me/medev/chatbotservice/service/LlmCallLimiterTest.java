@@ -0,0 +1,50 @@
+package me.medev.chatbotservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LlmCallLimiterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final LlmCallLimiter limiter = new LlmCallLimiter(1, registry);
+
+    @AfterEach
+    void tearDown() {
+        limiter.shutdown();
+    }
+
+    @Test
+    void streamReleasesItsSlotWhenTheCallThrows() {
+        Flux<String> failing = limiter.stream(() -> {
+            throw new IllegalStateException("provider down");
+        });
+
+        assertThatThrownBy(() -> failing.blockLast(Duration.ofSeconds(5)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("provider down");
+        assertThat(available()).isEqualTo(1);
+    }
+
+    @Test
+    void streamReleasesItsSlotOnErrorAndOnCancel() {
+        assertThatThrownBy(() -> limiter.stream(() -> Flux.<String>error(new IllegalStateException("reset")))
+                .blockLast(Duration.ofSeconds(5)))
+                .hasMessage("reset");
+        assertThat(available()).isEqualTo(1);
+
+        assertThat(limiter.stream(() -> Flux.just("a", "b", "c")).take(1).blockLast(Duration.ofSeconds(5)))
+                .isEqualTo("a");
+        assertThat(available()).isEqualTo(1);
+    }
+
+    private double available() {
+        return registry.get("chatbot.llm.calls.available").gauge().value();
+    }
+}
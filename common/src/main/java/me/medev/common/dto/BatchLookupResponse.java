@@ -0,0 +1,16 @@
+package me.medev.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchLookupResponse<T> {
+    private Map<Long, T> found;
+    private List<Long> missing;
+}
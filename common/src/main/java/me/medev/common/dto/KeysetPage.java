@@ -0,0 +1,19 @@
+package me.medev.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a listing ordered by ID. {@code nextCursor} is passed back as {@code after}
+ * to fetch the following page and is {@code null} on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeysetPage<T> {
+    private List<T> items;
+    private Long nextCursor;
+}
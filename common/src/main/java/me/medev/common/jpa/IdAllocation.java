@@ -0,0 +1,14 @@
+package me.medev.common.jpa;
+
+/**
+ * Block size of the ID sequences. The pooled-lo optimizer hands out this many IDs per
+ * {@code nextval}, so it has to match the {@code INCREMENT BY} of every sequence created by
+ * the services' migrations.
+ */
+public final class IdAllocation {
+
+    public static final int BLOCK_SIZE = 50;
+
+    private IdAllocation() {
+    }
+}
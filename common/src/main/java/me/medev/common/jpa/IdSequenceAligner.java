@@ -0,0 +1,52 @@
+package me.medev.common.jpa;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Moves ID sequences past the highest existing ID. Tables that were filled while IDs came
+ * from IDENTITY columns hold rows the sequences know nothing about. The sequences are those
+ * of the mapped entities, so a service only has to import this class.
+ */
+@Slf4j
+public class IdSequenceAligner {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    // Depends on the EntityManagerFactory so the schema migrations have run first
+    public IdSequenceAligner(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @PostConstruct
+    void align() {
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMappingMetamodel()
+                .forEachEntityDescriptor(persister -> {
+                    if (persister.isInherited()
+                            || !(persister.getGenerator() instanceof SequenceStyleGenerator generator)
+                            || !(persister instanceof AbstractEntityPersister entity)) {
+                        return;
+                    }
+                    DatabaseStructure structure = generator.getDatabaseStructure();
+                    align(structure.getPhysicalName().render(), entity.getTableName(),
+                            entity.getIdentifierColumnNames()[0], structure.getIncrementSize());
+                });
+    }
+
+    // The margin covers a block already handed out by the pooled-lo optimizer
+    private void align(String sequence, String table, String idColumn, int blockSize) {
+        Long value = jdbcTemplate.queryForObject(
+                "SELECT setval('" + sequence + "', GREATEST((SELECT last_value FROM " + sequence + "), "
+                        + "(SELECT COALESCE(MAX(" + idColumn + "), 0) FROM " + table + ") + " + blockSize + "))",
+                Long.class);
+        log.debug("Sequence {} aligned to {}", sequence, value);
+    }
+}
@@ -0,0 +1,103 @@
+package me.medev.common.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drops this service's responses from the gateway's response cache after every successful
+ * write, by calling {@code gateway.response-cache.invalidation-url}
+ * ({@code DELETE /actuator/responsecache/{routeId}} on the gateway). The gateway only sees
+ * writes routed through it; this also covers those made by other services calling this one
+ * directly, such as billing-service reserving stock. Nothing is sent while the URL is unset.
+ * <p>
+ * Calls are sent in the background and coalesced: while one is in flight, any number of
+ * further writes cause a single follow-up call once it completes, so the last write always
+ * has an invalidation sent after it. A failed call is logged and the cached responses expire
+ * with the route's TTL. POSTs that only read, such as batch lookups, are listed in
+ * {@code gateway.response-cache.read-paths}.
+ */
+@Slf4j
+public class GatewayCacheInvalidationFilter extends OncePerRequestFilter {
+
+    private static final int IDLE = 0;
+    private static final int IN_FLIGHT = 1;
+    // In flight, and a write completed after it was sent
+    private static final int STALE = 2;
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(2);
+
+    private final HttpRequest invalidation;
+    private final List<String> readPaths;
+    private final HttpClient httpClient;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+
+    public GatewayCacheInvalidationFilter(@Value("${gateway.response-cache.invalidation-url:}") String invalidationUrl,
+                                          @Value("${gateway.response-cache.read-paths:}") List<String> readPaths) {
+        this.invalidation = invalidationUrl.isBlank() ? null
+                : HttpRequest.newBuilder(URI.create(invalidationUrl)).DELETE().timeout(TIMEOUT).build();
+        this.readPaths = readPaths;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        chain.doFilter(request, response);
+        if (invalidation != null && isWrite(request) && response.getStatus() < 400) {
+            invalidate();
+        }
+    }
+
+    void invalidate() {
+        if (state.getAndUpdate(current -> current == IDLE ? IN_FLIGHT : STALE) == IDLE) {
+            send();
+        }
+    }
+
+    private void send() {
+        httpClient.sendAsync(invalidation, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    if (failure != null) {
+                        log.warn("Failed to invalidate gateway cache at {}: {}", invalidation.uri(), failure.toString());
+                    } else if (response.statusCode() >= 300) {
+                        log.warn("Gateway cache invalidation at {} returned {}", invalidation.uri(), response.statusCode());
+                    }
+                    if (!state.compareAndSet(IN_FLIGHT, IDLE)) {
+                        // Writes completed while this call was in flight may have been cached again
+                        state.set(IN_FLIGHT);
+                        send();
+                    }
+                });
+    }
+
+    private boolean isWrite(HttpServletRequest request) {
+        String method = request.getMethod();
+        if (HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method)) {
+            return false;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String readPath : readPaths) {
+            if (pathMatcher.match(readPath, path)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
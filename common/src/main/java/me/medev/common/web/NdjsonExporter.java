@@ -0,0 +1,63 @@
+package me.medev.common.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes query results as newline-delimited JSON while they are read. The query runs in a
+ * read-only transaction so the driver fetches rows in batches, and each entity is detached
+ * once written so the persistence context stays small.
+ */
+@Component
+public class NdjsonExporter {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public NdjsonExporter(PlatformTransactionManager transactionManager,
+                          EntityManager entityManager,
+                          ObjectMapper objectMapper) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    public <T> StreamingResponseBody export(Supplier<Stream<T>> query) {
+        return out -> {
+            OutputStream buffered = new BufferedOutputStream(out, 64 * 1024);
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<T> rows = query.get()) {
+                    rows.forEach(row -> {
+                        write(buffered, row);
+                        entityManager.detach(row);
+                    });
+                }
+            });
+            buffered.flush();
+        };
+    }
+
+    private void write(OutputStream out, Object row) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(row));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
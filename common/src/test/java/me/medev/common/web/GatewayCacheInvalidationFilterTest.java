@@ -0,0 +1,119 @@
+package me.medev.common.web;
+
+import com.sun.net.httpserver.HttpServer;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GatewayCacheInvalidationFilterTest {
+
+    private final ExecutorService handlers = Executors.newCachedThreadPool();
+    private HttpServer gateway;
+    private final AtomicInteger invalidations = new AtomicInteger();
+    private final Semaphore received = new Semaphore(0);
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private GatewayCacheInvalidationFilter filter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        gateway = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        gateway.createContext("/actuator/responsecache/inventory-service", exchange -> {
+            if ("DELETE".equals(exchange.getRequestMethod())) {
+                invalidations.incrementAndGet();
+                received.release();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        // One handler thread per call, so a held call does not block the next one
+        gateway.setExecutor(handlers);
+        gateway.start();
+        filter = new GatewayCacheInvalidationFilter(
+                "http://127.0.0.1:" + gateway.getAddress().getPort() + "/actuator/responsecache/inventory-service",
+                List.of("/api/products/batch"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        gateway.stop(0);
+        handlers.shutdownNow();
+    }
+
+    @Test
+    void successfulWritesInvalidateTheRoute() throws Exception {
+        request("POST", "/api/products/1/reserve", 200);
+
+        assertThat(received.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(invalidations).hasValue(1);
+    }
+
+    @Test
+    void readsAndFailedWritesDoNotInvalidate() throws Exception {
+        request("GET", "/api/products", 200);
+        request("POST", "/api/products/batch", 200);
+        request("POST", "/api/products/1/reserve", 409);
+        request("DELETE", "/api/products/1", 204);
+
+        assertThat(received.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(received.tryAcquire(300, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(invalidations).hasValue(1);
+    }
+
+    @Test
+    void writesDuringAnInvalidationAreCoveredByOneFollowUp() throws Exception {
+        release = new CountDownLatch(1);
+        request("PUT", "/api/products/1", 200);
+        assertThat(received.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+
+        for (int i = 0; i < 10; i++) {
+            request("POST", "/api/products/1/reserve", 200);
+        }
+        release.countDown();
+
+        assertThat(received.tryAcquire(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(received.tryAcquire(300, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(invalidations).hasValue(2);
+    }
+
+    @Test
+    void nothingIsSentWithoutAUrl() throws Exception {
+        filter = new GatewayCacheInvalidationFilter("", List.of());
+
+        request("POST", "/api/products", 200);
+
+        assertThat(received.tryAcquire(300, TimeUnit.MILLISECONDS)).isFalse();
+    }
+
+    private void request(String method, String path, int status) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest req, ServletResponse res) {
+                response.setStatus(status);
+            }
+        });
+    }
+}
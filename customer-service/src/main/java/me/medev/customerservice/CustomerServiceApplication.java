@@ -1,9 +1,14 @@
 package me.medev.customerservice;
 
+import me.medev.common.jpa.IdSequenceAligner;
+import me.medev.common.web.GatewayCacheInvalidationFilter;
+import me.medev.common.web.NdjsonExporter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 
 @SpringBootApplication
+@Import({IdSequenceAligner.class, NdjsonExporter.class, GatewayCacheInvalidationFilter.class})
 public class CustomerServiceApplication {
 
     public static void main(String[] args) {
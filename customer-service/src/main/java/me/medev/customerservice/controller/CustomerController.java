@@ -1,26 +1,63 @@
 package me.medev.customerservice.controller;
 
+import me.medev.common.dto.BatchLookupResponse;
+import me.medev.common.dto.KeysetPage;
+import me.medev.common.web.NdjsonExporter;
 import me.medev.customerservice.entity.Customer;
 import me.medev.customerservice.repository.CustomerRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/customers")
 public class CustomerController {
 
+    private static final int MAX_BATCH_SIZE = 1000;
+
     @Autowired
     private CustomerRepository customerRepository;
 
+    @Autowired
+    private NdjsonExporter ndjsonExporter;
+
+    @Value("${customers.listing.max-page-size:100}")
+    private int maxPageSize;
+
     @GetMapping
     public List<Customer> getAllCustomers() {
         return customerRepository.findAll();
     }
 
+    @GetMapping(params = "limit")
+    public KeysetPage<Customer> getCustomersAfter(@RequestParam(defaultValue = "0") Long after,
+                                                  @RequestParam int limit) {
+        int size = Math.min(Math.max(limit, 1), maxPageSize);
+        List<Customer> items = customerRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(size + 1));
+        if (items.size() <= size) {
+            return new KeysetPage<>(items, null);
+        }
+        items = items.subList(0, size);
+        return new KeysetPage<>(items, items.get(size - 1).getId());
+    }
+
+    @GetMapping(value = "/export", produces = NdjsonExporter.NDJSON)
+    public StreamingResponseBody exportCustomers() {
+        return ndjsonExporter.export(customerRepository::streamAllOrderById);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Customer> getCustomerById(@PathVariable Long id) {
         Optional<Customer> customer = customerRepository.findById(id);
@@ -28,6 +65,31 @@ public class CustomerController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<BatchLookupResponse<Customer>> getCustomersByIds(@RequestBody List<Long> ids) {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+        if (requested.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Map<Long, Customer> loaded = new HashMap<>();
+        for (Customer customer : customerRepository.findAllById(requested)) {
+            loaded.put(customer.getId(), customer);
+        }
+        Map<Long, Customer> found = new LinkedHashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : requested) {
+            Customer customer = loaded.get(id);
+            if (customer != null) {
+                found.put(id, customer);
+            } else {
+                missing.add(id);
+            }
+        }
+        return ResponseEntity.ok(new BatchLookupResponse<>(found, missing));
+    }
+
     @GetMapping("/email/{email}")
     public ResponseEntity<Customer> getCustomerByEmail(@PathVariable String email) {
         Optional<Customer> customer = customerRepository.findByEmail(email);
@@ -0,0 +1,12 @@
+-- Schema previously created by Hibernate (ddl-auto: update). IF NOT EXISTS keeps this a
+-- no-op on databases that already have it.
+
+CREATE SEQUENCE IF NOT EXISTS customers_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS customers (
+    id      BIGINT       NOT NULL PRIMARY KEY,
+    name    VARCHAR(255) NOT NULL,
+    email   VARCHAR(255) NOT NULL UNIQUE,
+    phone   VARCHAR(255),
+    address VARCHAR(255)
+);
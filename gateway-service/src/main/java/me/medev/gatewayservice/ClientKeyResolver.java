@@ -0,0 +1,38 @@
+package me.medev.gatewayservice;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.Set;
+
+/**
+ * Identifies the client a request is charged to: its API key when it sends one of the keys
+ * listed in {@code gateway.rate-limit.api-keys}, its IP address otherwise. Unknown keys are
+ * ignored so that a client cannot get a fresh budget by making one up.
+ */
+@Component
+public class ClientKeyResolver implements KeyResolver {
+
+    public static final String API_KEY_HEADER = "X-API-Key";
+
+    private final Set<String> apiKeys;
+
+    public ClientKeyResolver(@Value("${gateway.rate-limit.api-keys:}") Set<String> apiKeys) {
+        this.apiKeys = apiKeys;
+    }
+
+    @Override
+    public Mono<String> resolve(ServerWebExchange exchange) {
+        String apiKey = exchange.getRequest().getHeaders().getFirst(API_KEY_HEADER);
+        if (apiKey != null && apiKeys.contains(apiKey)) {
+            return Mono.just("key:" + apiKey);
+        }
+        InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+        return Mono.just("ip:" + (remote != null && remote.getAddress() != null
+                ? remote.getAddress().getHostAddress() : "unknown"));
+    }
+}
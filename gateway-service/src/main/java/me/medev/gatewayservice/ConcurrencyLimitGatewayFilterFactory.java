@@ -0,0 +1,85 @@
+package me.medev.gatewayservice;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the requests a route has in flight, e.g. {@code ConcurrencyLimit=10}. Requests beyond
+ * the cap get an immediate 503 instead of queueing behind slow ones, so a burst on one route
+ * cannot hold the gateway's connections for the others.
+ */
+@Component
+public class ConcurrencyLimitGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ConcurrencyLimitGatewayFilterFactory.Config> {
+
+    private final MeterRegistry registry;
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimitGatewayFilterFactory(MeterRegistry registry) {
+        super(Config.class);
+        this.registry = registry;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("maxConcurrent");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            String routeId = route != null ? route.getId() : "";
+            AtomicInteger running = inFlight(routeId);
+
+            if (running.incrementAndGet() > config.getMaxConcurrent()) {
+                running.decrementAndGet();
+                count(routeId, "shed");
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+                return response.setComplete();
+            }
+            count(routeId, "admitted");
+            return chain.filter(exchange).doFinally(signal -> running.decrementAndGet());
+        };
+    }
+
+    private AtomicInteger inFlight(String routeId) {
+        return inFlight.computeIfAbsent(routeId, id -> {
+            AtomicInteger running = new AtomicInteger();
+            Gauge.builder("gateway.concurrency.in.flight", running, AtomicInteger::get).tag("route", id).register(registry);
+            return running;
+        });
+    }
+
+    private void count(String routeId, String result) {
+        registry.counter("gateway.concurrency.limit", "route", routeId, "result", result).increment();
+    }
+
+    public static class Config {
+
+        private int maxConcurrent = 100;
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package me.medev.gatewayservice;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code /actuator/gatewayprofile}: latency of the gateway hot path, in milliseconds.
+ * <ul>
+ *     <li>{@code requests}: whole requests per route, as seen by the gateway</li>
+ *     <li>{@code filters}: time spent in each route filter, per route</li>
+ *     <li>{@code upstreamConnect}/{@code upstreamResponse}: connecting to a backend, and
+ *     waiting for its response once the request is sent</li>
+ * </ul>
+ * {@code /actuator/gatewayprofile/{routeId}} narrows requests and filters to one route.
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.profiler.enabled", matchIfMissing = true)
+@Endpoint(id = "gatewayprofile")
+public class GatewayProfileEndpoint {
+
+    private static final String REQUESTS_TIMER = "spring.cloud.gateway.requests";
+    private static final String CONNECT_TIMER = "reactor.netty.http.client.connect.time";
+    private static final String RESPONSE_TIMER = "reactor.netty.http.client.response.time";
+
+    private final MeterRegistry registry;
+
+    public GatewayProfileEndpoint(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @ReadOperation
+    public Map<String, Object> profile() {
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("requests", timers(REQUESTS_TIMER, null, null));
+        profile.put("filters", timers(GatewayProfiler.FILTER_TIMER, null, null));
+        profile.put("upstreamConnect", timers(CONNECT_TIMER, null, null));
+        profile.put("upstreamResponse", timers(RESPONSE_TIMER, null, null));
+        return profile;
+    }
+
+    @ReadOperation
+    public Map<String, Object> routeProfile(@Selector String routeId) {
+        Map<String, Object> profile = new LinkedHashMap<>();
+        profile.put("requests", timers(REQUESTS_TIMER, "routeId", routeId));
+        profile.put("filters", timers(GatewayProfiler.FILTER_TIMER, "route", routeId));
+        return profile;
+    }
+
+    private List<Map<String, Object>> timers(String name, String tagKey, String tagValue) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Timer timer : registry.find(name).timers()) {
+            if (tagKey != null && !tagValue.equals(timer.getId().getTag(tagKey))) {
+                continue;
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (Tag tag : timer.getId().getTags()) {
+                row.put(tag.getKey(), tag.getValue());
+            }
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            row.put("count", snapshot.count());
+            row.put("mean", snapshot.mean(TimeUnit.MILLISECONDS));
+            row.put("max", snapshot.max(TimeUnit.MILLISECONDS));
+            for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+                row.put("p" + Math.round(percentile.percentile() * 100), percentile.value(TimeUnit.MILLISECONDS));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,82 @@
+package me.medev.gatewayservice;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinitionRouteLocator;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wires the gateway profiler: route filters are timed by {@link GatewayProfiler}, and the
+ * upstream HTTP client records connect and response times
+ * ({@code reactor.netty.http.client.*}), tagged with the first two path segments so that
+ * IDs in paths do not create a meter each.
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.profiler.enabled", matchIfMissing = true)
+public class GatewayProfilerConfig {
+
+    @Bean
+    public GatewayProfiler gatewayProfiler(MeterRegistry registry) {
+        return new GatewayProfiler(registry);
+    }
+
+    @Bean
+    public HttpClientCustomizer upstreamMetricsCustomizer() {
+        return httpClient -> httpClient.metrics(true, GatewayProfilerConfig::pathPrefix);
+    }
+
+    @Bean
+    public static BeanPostProcessor profilingRouteLocatorPostProcessor(ObjectProvider<GatewayProfiler> profiler) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof RouteDefinitionRouteLocator locator) {
+                    return new ProfilingRouteLocator(locator, profiler);
+                }
+                return bean;
+            }
+        };
+    }
+
+    static String pathPrefix(String uri) {
+        String path = uri.split("\\?", 2)[0];
+        String[] segments = path.split("/", 4);
+        return segments.length <= 3 ? path : "/" + segments[1] + "/" + segments[2];
+    }
+
+    private record ProfilingRouteLocator(RouteLocator delegate, ObjectProvider<GatewayProfiler> profiler)
+            implements RouteLocator {
+
+        @Override
+        public Flux<Route> getRoutes() {
+            return delegate.getRoutes().map(this::instrument);
+        }
+
+        private Route instrument(Route route) {
+            GatewayProfiler gatewayProfiler = profiler.getObject();
+            List<GatewayFilter> filters = new ArrayList<>(route.getFilters().size());
+            for (GatewayFilter filter : route.getFilters()) {
+                filters.add(gatewayProfiler.timed(route.getId(), filter));
+            }
+            return Route.async()
+                    .id(route.getId())
+                    .uri(route.getUri())
+                    .order(route.getOrder())
+                    .asyncPredicate(route.getPredicate())
+                    .replaceFilters(filters)
+                    .replaceMetadata(route.getMetadata())
+                    .build();
+        }
+    }
+}
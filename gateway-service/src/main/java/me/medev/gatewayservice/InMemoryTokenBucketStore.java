@@ -0,0 +1,83 @@
+package me.medev.gatewayservice;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets in a local map. Buckets that refilled to capacity are dropped now and then,
+ * since a missing bucket behaves like a full one.
+ */
+public class InMemoryTokenBucketStore implements TokenBucketStore {
+
+    private static final long SWEEP_INTERVAL_NANOS = Duration.ofMinutes(1).toNanos();
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final LongSupplier nanoClock;
+    private final AtomicLong lastSweep;
+
+    public InMemoryTokenBucketStore() {
+        this(System::nanoTime);
+    }
+
+    InMemoryTokenBucketStore(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.lastSweep = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    @Override
+    public Mono<Result> tryConsume(String key, long capacity, double refillPerSecond, long tokens) {
+        return Mono.fromSupplier(() -> {
+            long now = nanoClock.getAsLong();
+            sweepIfDue(now);
+            return buckets.computeIfAbsent(key, k -> new Bucket(capacity, refillPerSecond, now)).tryConsume(tokens, now);
+        });
+    }
+
+    private void sweepIfDue(long now) {
+        long last = lastSweep.get();
+        if (now - last < SWEEP_INTERVAL_NANOS || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        // A client returning mid-sweep may get a fresh bucket, which is the state it would have anyway
+        buckets.entrySet().removeIf(entry -> entry.getValue().isFull(now));
+    }
+
+    private static final class Bucket {
+
+        private final long capacity;
+        private final double refillPerNano;
+        private double tokens;
+        private long refilledAt;
+
+        Bucket(long capacity, double refillPerSecond, long now) {
+            this.capacity = capacity;
+            this.refillPerNano = refillPerSecond / 1_000_000_000d;
+            this.tokens = capacity;
+            this.refilledAt = now;
+        }
+
+        synchronized Result tryConsume(long requested, long now) {
+            refill(now);
+            if (tokens < requested) {
+                return new Result(false, (long) tokens);
+            }
+            tokens -= requested;
+            return new Result(true, (long) tokens);
+        }
+
+        synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= capacity;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * refillPerNano);
+            refilledAt = now;
+        }
+    }
+}
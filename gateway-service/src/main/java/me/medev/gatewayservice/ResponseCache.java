@@ -0,0 +1,170 @@
+package me.medev.gatewayservice;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Responses stored by {@link ResponseCacheGatewayFilterFactory}, bounded in bytes (bodies and
+ * headers) with the least recently used evicted first.
+ * <p>
+ * Each route has a generation that invalidation bumps. A response is stored only if its
+ * route's generation did not change while it was fetched, so a read racing a write cannot
+ * put the pre-write response back.
+ */
+@Component
+public class ResponseCache {
+
+    /**
+     * {@code headers} are the upstream's end-to-end headers, replayed on hits.
+     */
+    record Entry(String routeId, byte[] body, HttpHeaders headers, String etag, long expiresAtNanos) {
+
+        boolean isFresh() {
+            return System.nanoTime() - expiresAtNanos < 0;
+        }
+
+        /**
+         * Body plus header names and values, roughly what the entry keeps alive.
+         */
+        long weight() {
+            long weight = body.length;
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                weight += header.getKey().length();
+                for (String value : header.getValue()) {
+                    weight += value.length();
+                }
+            }
+            return weight;
+        }
+    }
+
+    private final long maxBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private long bytes;
+
+    public ResponseCache(@Value("${gateway.response-cache.max-bytes:64MB}") DataSize maxBytes, MeterRegistry registry) {
+        this.maxBytes = maxBytes.toBytes();
+        Gauge.builder("gateway.response.cache.size", this, ResponseCache::size).register(registry);
+        Gauge.builder("gateway.response.cache.bytes", this, ResponseCache::bytes).register(registry);
+    }
+
+    /**
+     * Returns the fresh entry for {@code key}, or {@code null}.
+     */
+    Entry get(String key) {
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (!entry.isFresh()) {
+                remove(key);
+                return null;
+            }
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long generation(String routeId) {
+        return generations.computeIfAbsent(routeId, id -> new AtomicLong()).get();
+    }
+
+    /**
+     * Stores the entry unless the route was invalidated since {@code generation} was read.
+     */
+    void put(String key, Entry entry, long generation) {
+        if (entry.weight() > maxBytes) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (generation(entry.routeId()) != generation) {
+                return;
+            }
+            remove(key);
+            entries.put(key, entry);
+            bytes += entry.weight();
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().weight();
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every response cached for the route.
+     */
+    public void invalidate(String routeId) {
+        lock.lock();
+        try {
+            generations.computeIfAbsent(routeId, id -> new AtomicLong()).incrementAndGet();
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.routeId().equals(routeId)) {
+                    bytes -= entry.weight();
+                    it.remove();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            generations.values().forEach(AtomicLong::incrementAndGet);
+            entries.clear();
+            bytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long bytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.weight();
+        }
+    }
+}
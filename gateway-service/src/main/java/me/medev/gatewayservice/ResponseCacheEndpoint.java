@@ -0,0 +1,39 @@
+package me.medev.gatewayservice;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code /actuator/responsecache}: cache statistics, and invalidation of one route's
+ * responses or of all of them.
+ */
+@Component
+@Endpoint(id = "responsecache")
+public class ResponseCacheEndpoint {
+
+    private final ResponseCache cache;
+
+    public ResponseCacheEndpoint(ResponseCache cache) {
+        this.cache = cache;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        return Map.of("entries", cache.size(), "bytes", cache.bytes());
+    }
+
+    @DeleteOperation
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @DeleteOperation
+    public void invalidate(@Selector String routeId) {
+        cache.invalidate(routeId);
+    }
+}
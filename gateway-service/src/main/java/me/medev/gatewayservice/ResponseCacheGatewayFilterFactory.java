@@ -0,0 +1,245 @@
+package me.medev.gatewayservice;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Caches successful JSON responses to GET requests for the route's TTL, e.g.
+ * {@code ResponseCache=30s}. Responses carry a strong ETag computed from the body, and
+ * requests whose {@code If-None-Match} matches get a 304. Any other request through the
+ * route is taken as a write and drops the route's cached responses once it completes.
+ * Writes that bypass the gateway are picked up when the TTL runs out, or right away through
+ * {@code DELETE /actuator/responsecache/{routeId}}, which the business services call after
+ * each write they serve.
+ * <p>
+ * Hits replay the upstream's end-to-end headers; hop-by-hop headers and those the gateway
+ * sets per request (CORS, rate limit, ETag) are not stored, and responses setting a cookie
+ * are not cached.
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    private static final String CACHE_HEADER = "X-Cache";
+
+    private static final Set<String> UNSTORED_HEADERS = Set.of(
+            "connection", "keep-alive", "proxy-authenticate", "proxy-authorization", "te", "trailer",
+            "transfer-encoding", "upgrade", "content-length", "date", "etag", "set-cookie", "retry-after",
+            CACHE_HEADER.toLowerCase(Locale.ROOT));
+    private static final List<String> UNSTORED_HEADER_PREFIXES = List.of("access-control-", "x-ratelimit-");
+    // Headers a 304 carries from the response it stands for (RFC 9110, 15.4.5)
+    private static final List<String> NOT_MODIFIED_HEADERS = List.of(
+            HttpHeaders.CACHE_CONTROL, HttpHeaders.EXPIRES, HttpHeaders.VARY, HttpHeaders.CONTENT_LOCATION);
+
+    private final ResponseCache cache;
+    private final MeterRegistry registry;
+    private final long maxEntryBytes;
+
+    public ResponseCacheGatewayFilterFactory(ResponseCache cache,
+                                             MeterRegistry registry,
+                                             @Value("${gateway.response-cache.max-entry-bytes:1MB}") DataSize maxEntryBytes) {
+        super(Config.class);
+        this.cache = cache;
+        this.registry = registry;
+        this.maxEntryBytes = maxEntryBytes.toBytes();
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("ttl");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // Must run before NettyWriteResponseFilter so the body is written through our decorator
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            String routeId = route != null ? route.getId() : "";
+            ServerHttpRequest request = exchange.getRequest();
+            HttpMethod method = request.getMethod();
+
+            if (HttpMethod.GET.equals(method) && !request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION)) {
+                return serveCached(exchange, chain, routeId, config.getTtl());
+            }
+            if (HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method) || HttpMethod.OPTIONS.equals(method)) {
+                return chain.filter(exchange);
+            }
+            return chain.filter(exchange).doFinally(signal -> cache.invalidate(routeId));
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> serveCached(ServerWebExchange exchange, GatewayFilterChain chain, String routeId, Duration ttl) {
+        ServerHttpRequest request = exchange.getRequest();
+        ServerHttpResponse response = exchange.getResponse();
+        String key = cacheKey(routeId, request);
+        List<String> ifNoneMatch = ifNoneMatch(request);
+
+        ResponseCache.Entry entry = cache.get(key);
+        if (entry != null) {
+            HttpHeaders headers = response.getHeaders();
+            headers.setETag(entry.etag());
+            headers.set(CACHE_HEADER, "HIT");
+            if (matches(ifNoneMatch, entry.etag())) {
+                count(routeId, "not_modified");
+                for (String name : NOT_MODIFIED_HEADERS) {
+                    replay(headers, name, entry.headers().get(name));
+                }
+                response.setStatusCode(HttpStatus.NOT_MODIFIED);
+                return response.setComplete();
+            }
+            count(routeId, "hit");
+            response.setStatusCode(HttpStatus.OK);
+            entry.headers().forEach((name, values) -> replay(headers, name, values));
+            headers.setContentLength(entry.body().length);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(entry.body())));
+        }
+
+        count(routeId, "miss");
+        long generation = cache.generation(routeId);
+        ServerHttpResponseDecorator decorated = new ServerHttpResponseDecorator(response) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                HttpHeaders headers = getHeaders();
+                if (!HttpStatus.OK.equals(getStatusCode()) || !isJson(headers.getContentType())
+                        || headers.getContentLength() > maxEntryBytes) {
+                    return super.writeWith(body);
+                }
+                return DataBufferUtils.join(body)
+                        .defaultIfEmpty(bufferFactory().wrap(new byte[0]))
+                        .flatMap(joined -> {
+                            byte[] bytes = new byte[joined.readableByteCount()];
+                            joined.read(bytes);
+                            DataBufferUtils.release(joined);
+
+                            String etag = etag(bytes);
+                            if (bytes.length <= maxEntryBytes && isStorable(headers)) {
+                                cache.put(key, new ResponseCache.Entry(routeId, bytes, storedHeaders(headers),
+                                        etag, System.nanoTime() + ttl.toNanos()), generation);
+                            }
+                            headers.setETag(etag);
+                            headers.set(CACHE_HEADER, "MISS");
+                            headers.remove(HttpHeaders.TRANSFER_ENCODING);
+                            if (matches(ifNoneMatch, etag)) {
+                                setStatusCode(HttpStatus.NOT_MODIFIED);
+                                headers.remove(HttpHeaders.CONTENT_LENGTH);
+                                return getDelegate().setComplete();
+                            }
+                            headers.setContentLength(bytes.length);
+                            return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                        });
+            }
+        };
+        return chain.filter(exchange.mutate().response(decorated).build());
+    }
+
+    private static String cacheKey(String routeId, ServerHttpRequest request) {
+        String query = request.getURI().getRawQuery();
+        String accept = request.getHeaders().getFirst(HttpHeaders.ACCEPT);
+        return routeId + ' ' + request.getURI().getRawPath() + (query != null ? "?" + query : "")
+                + ' ' + (accept != null ? accept : "");
+    }
+
+    private static List<String> ifNoneMatch(ServerHttpRequest request) {
+        try {
+            return request.getHeaders().getIfNoneMatch();
+        } catch (IllegalArgumentException e) {
+            // A malformed header is treated as absent
+            return List.of();
+        }
+    }
+
+    private static boolean isJson(MediaType contentType) {
+        return contentType != null && MediaType.APPLICATION_JSON.isCompatibleWith(contentType);
+    }
+
+    private static boolean isStorable(HttpHeaders headers) {
+        String cacheControl = headers.getCacheControl();
+        return !headers.containsKey(HttpHeaders.SET_COOKIE)
+                && (cacheControl == null || !(cacheControl.contains("no-store") || cacheControl.contains("private")));
+    }
+
+    private static HttpHeaders storedHeaders(HttpHeaders headers) {
+        HttpHeaders stored = new HttpHeaders();
+        headers.forEach((name, values) -> {
+            String lowerCase = name.toLowerCase(Locale.ROOT);
+            if (!UNSTORED_HEADERS.contains(lowerCase)
+                    && UNSTORED_HEADER_PREFIXES.stream().noneMatch(lowerCase::startsWith)) {
+                stored.put(name, List.copyOf(values));
+            }
+        });
+        return HttpHeaders.readOnlyHttpHeaders(stored);
+    }
+
+    /**
+     * Headers the gateway already set for this request win over the stored ones.
+     */
+    private static void replay(HttpHeaders headers, String name, List<String> values) {
+        if (values != null && !headers.containsKey(name)) {
+            headers.put(name, values);
+        }
+    }
+
+    private static boolean matches(List<String> ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch) {
+            if (candidate.equals("*") || candidate.equals(etag) || candidate.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void count(String routeId, String result) {
+        registry.counter("gateway.response.cache", "route", routeId, "result", result).increment();
+    }
+
+    public static class Config {
+
+        private Duration ttl = Duration.ofSeconds(30);
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package me.medev.gatewayservice;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Token-bucket {@link org.springframework.cloud.gateway.filter.ratelimit.RateLimiter} for the
+ * {@code RequestRateLimiter} filter, with one bucket per route and client. Routes set their
+ * budget with the {@code token-bucket-rate-limiter.*} filter args and fall back to
+ * {@code gateway.rate-limit.*}. If the store fails, requests are let through rather than
+ * rejected.
+ */
+@Component
+public class TokenBucketRateLimiter extends AbstractRateLimiter<TokenBucketRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "token-bucket-rate-limiter";
+
+    private static final Logger log = LoggerFactory.getLogger(TokenBucketRateLimiter.class);
+
+    private final TokenBucketStore store;
+    private final MeterRegistry registry;
+    private final Config defaultConfig;
+
+    public TokenBucketRateLimiter(ConfigurationService configurationService,
+                                  ObjectProvider<TokenBucketStore> stores,
+                                  MeterRegistry registry,
+                                  @Value("${gateway.rate-limit.replenish-rate:20}") double replenishRate,
+                                  @Value("${gateway.rate-limit.burst-capacity:40}") long burstCapacity) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.store = stores.getIfAvailable(InMemoryTokenBucketStore::new);
+        this.registry = registry;
+        this.defaultConfig = new Config();
+        this.defaultConfig.setReplenishRate(replenishRate);
+        this.defaultConfig.setBurstCapacity(burstCapacity);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        return store.tryConsume(routeId + ':' + id, config.getBurstCapacity(), config.getReplenishRate(),
+                        config.getRequestedTokens())
+                .map(result -> {
+                    count(routeId, result.allowed() ? "allowed" : "denied");
+                    return new Response(result.allowed(), Map.of(
+                            "X-RateLimit-Remaining", String.valueOf(result.remaining()),
+                            "X-RateLimit-Burst-Capacity", String.valueOf(config.getBurstCapacity()),
+                            "X-RateLimit-Replenish-Rate", String.valueOf(config.getReplenishRate())));
+                })
+                .onErrorResume(e -> {
+                    log.warn("Rate limit store failed, letting request through", e);
+                    count(routeId, "error");
+                    return Mono.just(new Response(true, Map.of()));
+                });
+    }
+
+    private void count(String routeId, String result) {
+        registry.counter("gateway.rate.limit", "route", routeId, "result", result).increment();
+    }
+
+    public static class Config {
+
+        // Tokens added per second
+        private double replenishRate;
+        // Largest burst a client can send after being idle
+        private long burstCapacity;
+        private long requestedTokens = 1;
+
+        public double getReplenishRate() {
+            return replenishRate;
+        }
+
+        public void setReplenishRate(double replenishRate) {
+            this.replenishRate = replenishRate;
+        }
+
+        public long getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public void setBurstCapacity(long burstCapacity) {
+            this.burstCapacity = burstCapacity;
+        }
+
+        public long getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public void setRequestedTokens(long requestedTokens) {
+            this.requestedTokens = requestedTokens;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package me.medev.gatewayservice;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Holds the token buckets of {@link TokenBucketRateLimiter}. Buckets live in this gateway
+ * instance's memory unless another implementation is defined as a bean, e.g. one backed by
+ * a store shared between gateway instances.
+ */
+public interface TokenBucketStore {
+
+    record Result(boolean allowed, long remaining) {
+    }
+
+    /**
+     * Takes {@code tokens} from the bucket named {@code key} if it holds that many. The bucket
+     * starts full at {@code capacity} and refills by {@code refillPerSecond} up to it.
+     */
+    Mono<Result> tryConsume(String key, long capacity, double refillPerSecond, long tokens);
+}
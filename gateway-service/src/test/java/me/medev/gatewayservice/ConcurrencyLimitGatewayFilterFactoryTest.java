@@ -0,0 +1,91 @@
+package me.medev.gatewayservice;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimitGatewayFilterFactoryTest {
+
+    private static final String ROUTE_ID = "inventory-service";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final GatewayFilter filter = filter(1);
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    @Test
+    void requestOverTheLimitGetsServiceUnavailableWithRetryAfter() {
+        Sinks.Empty<Void> slow = Sinks.empty();
+        Disposable inFlight = filter.filter(exchange(), upstream(slow.asMono())).subscribe();
+
+        MockServerWebExchange shed = exchange();
+        filter.filter(shed, upstream(Mono.empty())).block();
+
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(shed.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(shed.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(count("shed")).isEqualTo(1);
+        assertThat(registry.get("gateway.concurrency.in.flight").tag("route", ROUTE_ID).gauge().value()).isEqualTo(1);
+        inFlight.dispose();
+    }
+
+    @Test
+    void slotIsFreedWhenTheRequestCompletesOrIsCancelled() {
+        Sinks.Empty<Void> completing = Sinks.empty();
+        filter.filter(exchange(), upstream(completing.asMono())).subscribe();
+        completing.tryEmitEmpty();
+
+        MockServerWebExchange afterCompletion = exchange();
+        filter.filter(afterCompletion, upstream(Mono.empty())).block();
+
+        Disposable cancelled = filter.filter(exchange(), upstream(Mono.never())).subscribe();
+        cancelled.dispose();
+
+        MockServerWebExchange afterCancel = exchange();
+        filter.filter(afterCancel, upstream(Mono.empty())).block();
+
+        assertThat(afterCompletion.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(afterCancel.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(upstreamCalls).hasValue(4);
+        assertThat(count("admitted")).isEqualTo(4);
+        assertThat(count("shed")).isZero();
+    }
+
+    private GatewayFilter filter(int maxConcurrent) {
+        ConcurrencyLimitGatewayFilterFactory.Config config = new ConcurrencyLimitGatewayFilterFactory.Config();
+        config.setMaxConcurrent(maxConcurrent);
+        return new ConcurrencyLimitGatewayFilterFactory(registry).apply(config);
+    }
+
+    private GatewayFilterChain upstream(Mono<Void> done) {
+        return exchange -> {
+            upstreamCalls.incrementAndGet();
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            return done;
+        };
+    }
+
+    private double count(String result) {
+        return registry.counter("gateway.concurrency.limit", "route", ROUTE_ID, "result", result).count();
+    }
+
+    private static MockServerWebExchange exchange() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products").build());
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR,
+                Route.async().id(ROUTE_ID).uri("http://inventory-service:8082").predicate(e -> true).build());
+        return exchange;
+    }
+}
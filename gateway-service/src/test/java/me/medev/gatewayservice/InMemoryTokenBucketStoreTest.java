@@ -0,0 +1,91 @@
+package me.medev.gatewayservice;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryTokenBucketStoreTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private final InMemoryTokenBucketStore store = new InMemoryTokenBucketStore(now::get);
+
+    @Test
+    void newBucketAllowsABurstOfItsCapacity() {
+        for (long remaining = 4; remaining >= 0; remaining--) {
+            assertThat(consume("client", 5, 1)).isEqualTo(new TokenBucketStore.Result(true, remaining));
+        }
+
+        assertThat(consume("client", 5, 1)).isEqualTo(new TokenBucketStore.Result(false, 0));
+    }
+
+    @Test
+    void tokensRefillAtTheConfiguredRate() {
+        drain("client", 10, 2);
+
+        advance(Duration.ofMillis(1500));
+        assertThat(consume("client", 10, 2)).isEqualTo(new TokenBucketStore.Result(true, 2));
+        assertThat(consume("client", 10, 2)).isEqualTo(new TokenBucketStore.Result(true, 1));
+        assertThat(consume("client", 10, 2)).isEqualTo(new TokenBucketStore.Result(true, 0));
+        assertThat(consume("client", 10, 2).allowed()).isFalse();
+
+        // Fractions of a token carry over between calls
+        advance(Duration.ofMillis(250));
+        assertThat(consume("client", 10, 2).allowed()).isFalse();
+        advance(Duration.ofMillis(250));
+        assertThat(consume("client", 10, 2)).isEqualTo(new TokenBucketStore.Result(true, 0));
+    }
+
+    @Test
+    void refillStopsAtCapacity() {
+        drain("client", 3, 100);
+
+        advance(Duration.ofHours(1));
+
+        assertThat(consume("client", 3, 100)).isEqualTo(new TokenBucketStore.Result(true, 2));
+    }
+
+    @Test
+    void requestForMoreTokensThanLeftTakesNone() {
+        assertThat(store.tryConsume("client", 5, 1, 3).block()).isEqualTo(new TokenBucketStore.Result(true, 2));
+
+        assertThat(store.tryConsume("client", 5, 1, 3).block()).isEqualTo(new TokenBucketStore.Result(false, 2));
+        assertThat(store.tryConsume("client", 5, 1, 2).block()).isEqualTo(new TokenBucketStore.Result(true, 0));
+    }
+
+    @Test
+    void eachKeyHasItsOwnBucket() {
+        drain("products:alice", 2, 1);
+
+        assertThat(consume("products:alice", 2, 1).allowed()).isFalse();
+        assertThat(consume("products:bob", 2, 1)).isEqualTo(new TokenBucketStore.Result(true, 1));
+        assertThat(consume("customers:alice", 2, 1)).isEqualTo(new TokenBucketStore.Result(true, 1));
+    }
+
+    @Test
+    void sweepKeepsBucketsThatAreNotFull() {
+        drain("client", 10, 0.0001);
+
+        // Past the sweep interval, with less than a token refilled
+        advance(Duration.ofMinutes(10));
+        consume("other", 10, 0.0001);
+
+        assertThat(consume("client", 10, 0.0001).allowed()).isFalse();
+    }
+
+    private void drain(String key, long capacity, double refillPerSecond) {
+        for (long i = 0; i < capacity; i++) {
+            assertThat(consume(key, capacity, refillPerSecond).allowed()).isTrue();
+        }
+    }
+
+    private TokenBucketStore.Result consume(String key, long capacity, double refillPerSecond) {
+        return store.tryConsume(key, capacity, refillPerSecond, 1).block();
+    }
+
+    private void advance(Duration duration) {
+        now.addAndGet(duration.toNanos());
+    }
+}
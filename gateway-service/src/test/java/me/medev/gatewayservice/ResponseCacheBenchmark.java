@@ -0,0 +1,121 @@
+package me.medev.gatewayservice;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A GET through the {@code ResponseCache} filter, with the upstream standing in for the
+ * service call as a JSON body of {@code bodyBytes} that arrives after {@code upstreamMillis}.
+ * {@code passThrough} is the route without the filter, {@code miss} the filter buffering,
+ * hashing and storing the body, and {@code hit} the filter answering from the cache; only the
+ * first two pay the upstream latency.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn -pl gateway-service test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *   -Dexec.args="-cp %classpath org.openjdk.jmh.Main ResponseCacheBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ResponseCacheBenchmark {
+
+    private static final String ROUTE_ID = "inventory-service";
+
+    @Param({"1024", "32768"})
+    public int bodyBytes;
+
+    @Param({"0", "5"})
+    public long upstreamMillis;
+
+    private ResponseCache cache;
+    private GatewayFilter filter;
+    private GatewayFilterChain upstream;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache = new ResponseCache(DataSize.ofMegabytes(64), registry);
+        filter = new ResponseCacheGatewayFilterFactory(cache, registry, DataSize.ofMegabytes(1))
+                .apply(new ResponseCacheGatewayFilterFactory.Config());
+        byte[] body = ("[" + "{\"id\":1,\"name\":\"Laptop\"},".repeat(bodyBytes / 25) + "{}]").getBytes(StandardCharsets.UTF_8);
+        Mono<Void> latency = upstreamMillis > 0 ? Mono.delay(Duration.ofMillis(upstreamMillis)).then() : Mono.empty();
+        upstream = exchange -> latency.then(Mono.defer(() -> {
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        }));
+        filter.filter(exchange(), upstream).block();
+    }
+
+    @Benchmark
+    public MockServerWebExchange passThrough(Request request) {
+        upstream.filter(request.exchange).block();
+        return request.exchange;
+    }
+
+    @Benchmark
+    public MockServerWebExchange miss(Request request) {
+        cache.invalidate(ROUTE_ID);
+        filter.filter(request.exchange, upstream).block();
+        return request.exchange;
+    }
+
+    @Benchmark
+    public MockServerWebExchange hit(Request request) {
+        filter.filter(request.exchange, upstream).block();
+        return request.exchange;
+    }
+
+    /**
+     * A fresh exchange per call, built outside the measured time.
+     */
+    @State(Scope.Thread)
+    public static class Request {
+
+        MockServerWebExchange exchange;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            exchange = exchange();
+        }
+    }
+
+    private static MockServerWebExchange exchange() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR,
+                Route.async().id(ROUTE_ID).uri("http://inventory-service:8082").predicate(e -> true).build());
+        return exchange;
+    }
+}
@@ -0,0 +1,139 @@
+package me.medev.gatewayservice;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheGatewayFilterFactoryTest {
+
+    private static final String ROUTE_ID = "inventory-service";
+    private static final String BODY = "[{\"id\":1,\"name\":\"Laptop\"}]";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ResponseCache cache = new ResponseCache(DataSize.ofMegabytes(1), registry);
+    private final GatewayFilter filter = new ResponseCacheGatewayFilterFactory(cache, registry, DataSize.ofKilobytes(64))
+            .apply(new ResponseCacheGatewayFilterFactory.Config());
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    @Test
+    void secondGetIsServedFromTheCacheWithTheUpstreamHeaders() {
+        MockServerWebExchange miss = exchange(MockServerHttpRequest.get("/api/products"));
+        filter.filter(miss, upstream(BODY, headers -> {
+            headers.setCacheControl("max-age=30");
+            headers.set("X-Total-Count", "1");
+            headers.set("X-RateLimit-Remaining", "39");
+        })).block();
+
+        MockServerWebExchange hit = exchange(MockServerHttpRequest.get("/api/products"));
+        filter.filter(hit, upstream("[]", headers -> {
+        })).block();
+
+        assertThat(upstreamCalls).hasValue(1);
+        MockServerHttpResponse response = hit.getResponse();
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBodyAsString().block()).isEqualTo(BODY);
+        HttpHeaders headers = response.getHeaders();
+        assertThat(headers.getFirst("X-Cache")).isEqualTo("HIT");
+        assertThat(headers.getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(headers.getContentLength()).isEqualTo(BODY.getBytes(StandardCharsets.UTF_8).length);
+        assertThat(headers.getCacheControl()).isEqualTo("max-age=30");
+        assertThat(headers.getFirst("X-Total-Count")).isEqualTo("1");
+        // Set by the gateway per request, not by the upstream
+        assertThat(headers.containsKey("X-RateLimit-Remaining")).isFalse();
+        assertThat(headers.getETag()).isEqualTo(miss.getResponse().getHeaders().getETag()).isNotNull();
+    }
+
+    @Test
+    void matchingIfNoneMatchGetsNotModifiedOnAMissAndOnAHit() {
+        MockServerWebExchange first = exchange(MockServerHttpRequest.get("/api/products"));
+        filter.filter(first, upstream(BODY, headers -> {
+        })).block();
+        String etag = first.getResponse().getHeaders().getETag();
+        cache.invalidateAll();
+
+        MockServerWebExchange miss = exchange(MockServerHttpRequest.get("/api/products").ifNoneMatch(etag));
+        filter.filter(miss, upstream(BODY, headers -> headers.setCacheControl("max-age=30"))).block();
+        MockServerWebExchange hit = exchange(MockServerHttpRequest.get("/api/products").ifNoneMatch(etag));
+        filter.filter(hit, upstream(BODY, headers -> {
+        })).block();
+        MockServerWebExchange stale = exchange(MockServerHttpRequest.get("/api/products").ifNoneMatch("\"other\""));
+        filter.filter(stale, upstream(BODY, headers -> {
+        })).block();
+
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(miss.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(miss.getResponse().getBodyAsString().block()).isEmpty();
+        assertThat(hit.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(hit.getResponse().getHeaders().getETag()).isEqualTo(etag);
+        assertThat(hit.getResponse().getHeaders().getCacheControl()).isEqualTo("max-age=30");
+        assertThat(hit.getResponse().getHeaders().getContentType()).isNull();
+        assertThat(stale.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(stale.getResponse().getBodyAsString().block()).isEqualTo(BODY);
+    }
+
+    @Test
+    void writeThroughTheRouteDropsItsCachedResponses() {
+        filter.filter(exchange(MockServerHttpRequest.get("/api/products")), upstream(BODY, headers -> {
+        })).block();
+        assertThat(cache.size()).isEqualTo(1);
+
+        filter.filter(exchange(MockServerHttpRequest.post("/api/products/1/reserve")), exchange -> {
+            upstreamCalls.incrementAndGet();
+            return exchange.getResponse().setComplete();
+        }).block();
+
+        assertThat(cache.size()).isZero();
+        filter.filter(exchange(MockServerHttpRequest.get("/api/products")), upstream(BODY, headers -> {
+        })).block();
+        assertThat(upstreamCalls).hasValue(3);
+    }
+
+    @Test
+    void responsesSettingCookiesOrMarkedPrivateAreNotCached() {
+        filter.filter(exchange(MockServerHttpRequest.get("/api/products/1")),
+                upstream(BODY, headers -> headers.add(HttpHeaders.SET_COOKIE, "session=abc"))).block();
+        filter.filter(exchange(MockServerHttpRequest.get("/api/products/2")),
+                upstream(BODY, headers -> headers.setCacheControl("private"))).block();
+        filter.filter(exchange(MockServerHttpRequest.get("/api/products/3").header(HttpHeaders.AUTHORIZATION, "Bearer x")),
+                upstream(BODY, headers -> {
+                })).block();
+
+        assertThat(cache.size()).isZero();
+    }
+
+    private GatewayFilterChain upstream(String body, Consumer<HttpHeaders> headers) {
+        return exchange -> {
+            upstreamCalls.incrementAndGet();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            headers.accept(response.getHeaders());
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8))));
+        };
+    }
+
+    private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request.build());
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR,
+                Route.async().id(ROUTE_ID).uri("http://inventory-service:8082").predicate(e -> true).build());
+        return exchange;
+    }
+}
@@ -0,0 +1,96 @@
+package me.medev.gatewayservice;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheTest {
+
+    private static final long TTL_NANOS = 60_000_000_000L;
+
+    private final ResponseCache cache = new ResponseCache(DataSize.ofBytes(300), new SimpleMeterRegistry());
+
+    @Test
+    void evictsTheLeastRecentlyUsedOnceOverTheByteBound() {
+        cache.put("a", entry("products", 100), cache.generation("products"));
+        cache.put("b", entry("products", 100), cache.generation("products"));
+        cache.put("c", entry("products", 100), cache.generation("products"));
+        assertThat(cache.get("a")).isNotNull();
+
+        cache.put("d", entry("products", 100), cache.generation("products"));
+
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("a")).isNotNull();
+        assertThat(cache.get("c")).isNotNull();
+        assertThat(cache.get("d")).isNotNull();
+        assertThat(cache.bytes()).isEqualTo(300);
+    }
+
+    @Test
+    void headersCountTowardsTheBound() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Pad", "x".repeat(95));
+        cache.put("a", new ResponseCache.Entry("products", new byte[200], headers, "\"a\"", System.nanoTime() + TTL_NANOS),
+                cache.generation("products"));
+        cache.put("b", entry("products", 100), cache.generation("products"));
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.bytes()).isEqualTo(100);
+    }
+
+    @Test
+    void entriesLargerThanTheBoundAreNotStored() {
+        cache.put("a", entry("products", 100), cache.generation("products"));
+        cache.put("huge", entry("products", 301), cache.generation("products"));
+
+        assertThat(cache.get("huge")).isNull();
+        assertThat(cache.get("a")).isNotNull();
+    }
+
+    @Test
+    void expiredEntriesAreNotReturned() {
+        cache.put("a", new ResponseCache.Entry("products", new byte[10], new HttpHeaders(), "\"a\"", System.nanoTime() - 1),
+                cache.generation("products"));
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void responseFetchedBeforeAnInvalidationIsNotStored() {
+        long generation = cache.generation("products");
+        // A write completes while the read is in flight
+        cache.invalidate("products");
+
+        cache.put("a", entry("products", 10), generation);
+
+        assertThat(cache.get("a")).isNull();
+        cache.put("a", entry("products", 10), cache.generation("products"));
+        assertThat(cache.get("a")).isNotNull();
+    }
+
+    @Test
+    void invalidationDropsOnlyTheRoutesEntries() {
+        cache.put("p", entry("products", 10), cache.generation("products"));
+        cache.put("c", entry("customers", 20), cache.generation("customers"));
+
+        cache.invalidate("products");
+
+        assertThat(cache.get("p")).isNull();
+        assertThat(cache.get("c")).isNotNull();
+        assertThat(cache.bytes()).isEqualTo(20);
+
+        long customers = cache.generation("customers");
+        cache.invalidateAll();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.generation("customers")).isGreaterThan(customers);
+    }
+
+    private static ResponseCache.Entry entry(String routeId, int size) {
+        return new ResponseCache.Entry(routeId, new byte[size], new HttpHeaders(), "\"" + size + "\"",
+                System.nanoTime() + TTL_NANOS);
+    }
+}
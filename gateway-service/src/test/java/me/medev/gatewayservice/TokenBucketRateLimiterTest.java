@@ -0,0 +1,70 @@
+package me.medev.gatewayservice;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenBucketRateLimiterTest {
+
+    private static final String ROUTE_ID = "inventory-service";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void clientIsDeniedOnceItsBurstIsSpentUntilTheBucketRefills() {
+        TokenBucketRateLimiter limiter = limiter(new InMemoryTokenBucketStore(now::get));
+
+        assertThat(limiter.isAllowed(ROUTE_ID, "alice").block().isAllowed()).isTrue();
+        assertThat(limiter.isAllowed(ROUTE_ID, "alice").block().isAllowed()).isTrue();
+        RateLimiter.Response denied = limiter.isAllowed(ROUTE_ID, "alice").block();
+        boolean otherClient = limiter.isAllowed(ROUTE_ID, "bob").block().isAllowed();
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        boolean refilled = limiter.isAllowed(ROUTE_ID, "alice").block().isAllowed();
+
+        assertThat(denied.isAllowed()).isFalse();
+        assertThat(denied.getHeaders())
+                .containsEntry("X-RateLimit-Remaining", "0")
+                .containsEntry("X-RateLimit-Burst-Capacity", "2")
+                .containsEntry("X-RateLimit-Replenish-Rate", "1.0");
+        assertThat(otherClient).isTrue();
+        assertThat(refilled).isTrue();
+        assertThat(count("allowed")).isEqualTo(4);
+        assertThat(count("denied")).isEqualTo(1);
+    }
+
+    @Test
+    void requestsAreLetThroughWhenTheStoreFails() {
+        TokenBucketStore failing = (key, capacity, refillPerSecond, tokens) ->
+                Mono.error(new IllegalStateException("store unavailable"));
+        TokenBucketRateLimiter limiter = limiter(failing);
+
+        RateLimiter.Response response = limiter.isAllowed(ROUTE_ID, "alice").block();
+
+        assertThat(response.isAllowed()).isTrue();
+        assertThat(response.getHeaders()).isEmpty();
+        assertThat(count("error")).isEqualTo(1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private TokenBucketRateLimiter limiter(TokenBucketStore store) {
+        ObjectProvider<TokenBucketStore> stores = mock(ObjectProvider.class);
+        when(stores.getIfAvailable(any())).thenReturn(store);
+        return new TokenBucketRateLimiter(mock(ConfigurationService.class), stores, registry, 1, 2);
+    }
+
+    private double count(String result) {
+        return registry.counter("gateway.rate.limit", "route", ROUTE_ID, "result", result).count();
+    }
+}
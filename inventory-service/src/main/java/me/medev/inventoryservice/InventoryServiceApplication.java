@@ -1,9 +1,16 @@
 package me.medev.inventoryservice;
 
+import me.medev.common.jpa.IdSequenceAligner;
+import me.medev.common.web.GatewayCacheInvalidationFilter;
+import me.medev.common.web.NdjsonExporter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@Import({IdSequenceAligner.class, NdjsonExporter.class, GatewayCacheInvalidationFilter.class})
+@EnableScheduling
 public class InventoryServiceApplication {
 
     public static void main(String[] args) {
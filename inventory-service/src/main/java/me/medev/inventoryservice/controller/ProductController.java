@@ -1,26 +1,81 @@
 package me.medev.inventoryservice.controller;
 
+import me.medev.common.dto.BatchLookupResponse;
+import me.medev.common.dto.KeysetPage;
+import me.medev.common.web.NdjsonExporter;
+import me.medev.inventoryservice.dto.StockRequest;
 import me.medev.inventoryservice.entity.Product;
 import me.medev.inventoryservice.repository.ProductRepository;
+import me.medev.inventoryservice.search.ProductSearchIndex;
+import me.medev.inventoryservice.service.ProductService;
+import me.medev.inventoryservice.service.StockService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
 
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_RESERVATION_ID_LENGTH = 64;
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private NdjsonExporter ndjsonExporter;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private StockService stockService;
+
+    @Value("${inventory.listing.max-page-size:100}")
+    private int maxPageSize;
+
     @GetMapping
     public List<Product> getAllProducts() {
         return productRepository.findAll();
     }
 
+    @GetMapping(params = "limit")
+    public KeysetPage<Product> getProductsAfter(@RequestParam(defaultValue = "0") Long after,
+                                                @RequestParam int limit) {
+        int size = Math.min(Math.max(limit, 1), maxPageSize);
+        List<Product> items = productRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(size + 1));
+        if (items.size() <= size) {
+            return new KeysetPage<>(items, null);
+        }
+        items = items.subList(0, size);
+        return new KeysetPage<>(items, items.get(size - 1).getId());
+    }
+
+    @GetMapping(value = "/export", produces = NdjsonExporter.NDJSON)
+    public StreamingResponseBody exportProducts() {
+        return ndjsonExporter.export(productRepository::streamAllOrderById);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Product> getProductById(@PathVariable Long id) {
         Optional<Product> product = productRepository.findById(id);
@@ -28,11 +83,53 @@ public class ProductController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<BatchLookupResponse<Product>> getProductsByIds(@RequestBody List<Long> ids) {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+        if (requested.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Map<Long, Product> loaded = new HashMap<>();
+        for (Product product : productRepository.findAllById(requested)) {
+            loaded.put(product.getId(), product);
+        }
+        Map<Long, Product> found = new LinkedHashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : requested) {
+            Product product = loaded.get(id);
+            if (product != null) {
+                found.put(id, product);
+            } else {
+                missing.add(id);
+            }
+        }
+        return ResponseEntity.ok(new BatchLookupResponse<>(found, missing));
+    }
+
+    /**
+     * Products whose name contains {@code name}, ignoring case. Ranked search over names and
+     * descriptions is {@code GET /search?q=}.
+     */
     @GetMapping("/search/{name}")
     public List<Product> searchProductsByName(@PathVariable String name) {
         return productRepository.findByNameContainingIgnoreCase(name);
     }
 
+    @GetMapping("/search")
+    public Page<Product> searchProducts(@RequestParam String q,
+                                        @RequestParam(defaultValue = "0") int page,
+                                        @RequestParam(defaultValue = "20") int size) {
+        PageRequest pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), maxPageSize));
+        // Only the matches up to the end of the requested page are ranked
+        int limit = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), Integer.MAX_VALUE);
+        ProductSearchIndex.Hits hits = productSearchIndex.search(q, limit);
+        List<Long> ids = hits.ids();
+        int from = (int) Math.min(pageable.getOffset(), ids.size());
+        return new PageImpl<>(loadInOrder(ids.subList(from, ids.size())), pageable, hits.total());
+    }
+
     @GetMapping("/available")
     public List<Product> getAvailableProducts(@RequestParam(defaultValue = "0") Integer minQuantity) {
         return productRepository.findByQuantityGreaterThan(minQuantity);
@@ -40,29 +137,123 @@ public class ProductController {
 
     @PostMapping
     public Product createProduct(@RequestBody Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        productSearchIndex.index(saved);
+        return saved;
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<Product> updateProduct(@PathVariable Long id, @RequestBody Product productDetails) {
-        Optional<Product> optionalProduct = productRepository.findById(id);
-        if (optionalProduct.isPresent()) {
-            Product product = optionalProduct.get();
-            product.setName(productDetails.getName());
-            product.setDescription(productDetails.getDescription());
-            product.setPrice(productDetails.getPrice());
-            product.setQuantity(productDetails.getQuantity());
-            return ResponseEntity.ok(productRepository.save(product));
-        }
-        return ResponseEntity.notFound().build();
+        Optional<Product> product = productService.update(id, productDetails);
+        product.ifPresent(productSearchIndex::index);
+        return product.map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteProduct(@PathVariable Long id) {
-        if (productRepository.existsById(id)) {
-            productRepository.deleteById(id);
+        if (productService.delete(id)) {
+            productSearchIndex.remove(id);
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Reserves stock. With a {@code reservationId} the call is idempotent and can be undone
+     * by releasing the same ID, even when the caller never saw the response.
+     */
+    @PostMapping("/{id}/reserve")
+    public ResponseEntity<Void> reserveStock(@PathVariable Long id, @RequestParam int quantity,
+                                             @RequestParam(required = false) String reservationId) {
+        if (quantity <= 0 || !isValidReservationId(reservationId)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return switch (reserve(reservationId, id, quantity)) {
+            case RESERVED -> ResponseEntity.noContent().build();
+            case INSUFFICIENT_STOCK, RELEASED -> ResponseEntity.status(HttpStatus.CONFLICT).build();
+            case NOT_FOUND -> ResponseEntity.notFound().build();
+        };
+    }
+
+    @PostMapping("/{id}/release")
+    public ResponseEntity<Void> releaseStock(@PathVariable Long id, @RequestParam int quantity,
+                                             @RequestParam(required = false) String reservationId) {
+        if (quantity <= 0 || !isValidReservationId(reservationId)) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (reservationId != null) {
+            stockService.release(reservationId, id, quantity);
+            return ResponseEntity.noContent().build();
+        }
+        if (stockService.release(id, quantity)) {
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.notFound().build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Reserves each request independently, in order; the result at index i is for request i.
+     */
+    @PostMapping("/reserve")
+    public ResponseEntity<List<StockService.Reservation>> reserveStock(@RequestBody List<StockRequest> requests) {
+        if (requests.size() > MAX_BATCH_SIZE || !requests.stream().allMatch(ProductController::isValid)) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<StockService.Reservation> results = new ArrayList<>(requests.size());
+        for (StockRequest request : requests) {
+            results.add(reserve(request.getReservationId(), request.getProductId(), request.getQuantity()));
+        }
+        return ResponseEntity.ok(results);
+    }
+
+    @PostMapping("/release")
+    public ResponseEntity<Void> releaseStock(@RequestBody List<StockRequest> requests) {
+        if (requests.size() > MAX_BATCH_SIZE || !requests.stream().allMatch(ProductController::isValid)) {
+            return ResponseEntity.badRequest().build();
+        }
+        for (StockRequest request : requests) {
+            if (request.getReservationId() != null) {
+                stockService.release(request.getReservationId(), request.getProductId(), request.getQuantity());
+            } else {
+                stockService.release(request.getProductId(), request.getQuantity());
+            }
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    private StockService.Reservation reserve(String reservationId, Long productId, int quantity) {
+        return reservationId != null
+                ? stockService.reserve(reservationId, productId, quantity)
+                : stockService.reserve(productId, quantity);
+    }
+
+    private static boolean isValid(StockRequest request) {
+        return request != null && request.getProductId() != null
+                && request.getQuantity() != null && request.getQuantity() > 0
+                && isValidReservationId(request.getReservationId());
+    }
+
+    private static boolean isValidReservationId(String reservationId) {
+        return reservationId == null || (!reservationId.isBlank() && reservationId.length() <= MAX_RESERVATION_ID_LENGTH);
+    }
+
+    /**
+     * Loads the products for ranked search hits, keeping the ranking. IDs deleted since the
+     * index last saw them are skipped.
+     */
+    private List<Product> loadInOrder(List<Long> ids) {
+        Map<Long, Product> loaded = new HashMap<>();
+        for (Product product : productRepository.findAllById(ids)) {
+            loaded.put(product.getId(), product);
+        }
+        List<Product> products = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Product product = loaded.get(id);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+}
@@ -0,0 +1,15 @@
+package me.medev.inventoryservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockRequest {
+    private Long productId;
+    private Integer quantity;
+    /** Optional idempotency key, see {@code StockService}. */
+    private String reservationId;
+}
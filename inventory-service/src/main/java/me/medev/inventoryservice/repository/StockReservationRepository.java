@@ -0,0 +1,66 @@
+package me.medev.inventoryservice.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Idempotency keys of stock reservations. Each method is one statement, so callers combine
+ * them with the stock update in their own transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockReservationRepository {
+
+    private static final String INSERT = """
+            INSERT INTO stock_reservations (id, product_id, quantity, released, created_at)
+            VALUES (?, ?, ?, ?, now())
+            ON CONFLICT (id) DO NOTHING""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Records a reservation under {@code id}; returns 0 when the key is already recorded.
+     */
+    public int claim(String id, Long productId, int quantity) {
+        return jdbcTemplate.update(INSERT, id, productId, quantity, false);
+    }
+
+    /**
+     * Records {@code id} as released without a reservation; returns 0 when the key is already recorded.
+     */
+    public int claimReleased(String id, Long productId, int quantity) {
+        return jdbcTemplate.update(INSERT, id, productId, quantity, true);
+    }
+
+    /**
+     * Marks a reservation released and returns what it reserved; empty when the key is unknown
+     * or already released.
+     */
+    public Optional<Reserved> markReleased(String id) {
+        List<Reserved> rows = jdbcTemplate.query(
+                "UPDATE stock_reservations SET released = true WHERE id = ? AND NOT released RETURNING product_id, quantity",
+                (rs, rowNum) -> new Reserved(rs.getLong("product_id"), rs.getInt("quantity")), id);
+        return rows.stream().findFirst();
+    }
+
+    public boolean isReleased(String id) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT released FROM stock_reservations WHERE id = ?", Boolean.class, id));
+    }
+
+    public void delete(String id) {
+        jdbcTemplate.update("DELETE FROM stock_reservations WHERE id = ?", id);
+    }
+
+    public int deleteCreatedBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM stock_reservations WHERE created_at < ?", cutoff);
+    }
+
+    public record Reserved(Long productId, int quantity) {
+    }
+}
@@ -0,0 +1,258 @@
+package me.medev.inventoryservice.search;
+
+import lombok.extern.slf4j.Slf4j;
+import me.medev.inventoryservice.entity.Product;
+import me.medev.inventoryservice.repository.ProductRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over product names and descriptions.
+ * <p>
+ * Text is lower-cased with accents stripped and split on anything but letters and digits. Every query token
+ * must match a term exactly or as a prefix; matches are scored with a saturated term
+ * frequency (name weighs more than description) times the term's IDF, and prefix
+ * matches count for less than exact ones. Every term a token is a prefix of is searched,
+ * so a token costs as much as the postings it reaches; tokens shorter than
+ * {@value #MIN_PREFIX_LENGTH} characters, which would reach most of the catalogue, only match
+ * exactly. Only the best {@code limit} matches are ranked, in a bounded heap.
+ * <p>
+ * Writes through this instance's controller update the index immediately; a periodic
+ * rebuild picks up writes made through other instances.
+ */
+@Slf4j
+@Component
+public class ProductSearchIndex {
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final float PREFIX_FACTOR = 0.5f;
+    static final int MIN_PREFIX_LENGTH = 3;
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private Map<Long, Set<String>> termsByProduct = new HashMap<>();
+    // Writes made while a rebuild reads the table, replayed onto the rebuilt index; null values are removals
+    private Map<Long, Product> journal;
+
+    public ProductSearchIndex(ProductRepository productRepository, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${inventory.search.rebuild-interval:10m}",
+            fixedDelayString = "${inventory.search.rebuild-interval:10m}")
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            journal = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        TreeMap<String, Map<Long, Float>> newPostings = new TreeMap<>();
+        Map<Long, Set<String>> newTermsByProduct = new HashMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Product> products = productRepository.streamAllOrderById()) {
+                    products.forEach(product -> add(newPostings, newTermsByProduct, product));
+                }
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                journal = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            journal.forEach((id, product) -> {
+                remove(newPostings, newTermsByProduct, id);
+                if (product != null) {
+                    add(newPostings, newTermsByProduct, product);
+                }
+            });
+            journal = null;
+            postings = newPostings;
+            termsByProduct = newTermsByProduct;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Product search index rebuilt: {} products, {} terms", newTermsByProduct.size(), newPostings.size());
+    }
+
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            remove(postings, termsByProduct, product.getId());
+            add(postings, termsByProduct, product);
+            if (journal != null) {
+                journal.put(product.getId(), product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            remove(postings, termsByProduct, productId);
+            if (journal != null) {
+                journal.put(productId, null);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the IDs of the best {@code limit} matching products, best match first, and how many products match.
+     */
+    public Hits search(String query, int limit) {
+        Set<String> tokens = new LinkedHashSet<>(tokenize(query));
+        if (tokens.isEmpty()) {
+            return Hits.NONE;
+        }
+
+        lock.readLock().lock();
+        try {
+            int productCount = termsByProduct.size();
+            Map<Long, Float> scores = null;
+            for (String token : tokens) {
+                Map<Long, Float> tokenScores = new HashMap<>();
+                Map<String, Map<Long, Float>> terms = token.length() < MIN_PREFIX_LENGTH
+                        ? postings.subMap(token, true, token, true)
+                        : postings.tailMap(token, true);
+                for (Map.Entry<String, Map<Long, Float>> term : terms.entrySet()) {
+                    if (!term.getKey().startsWith(token)) {
+                        break;
+                    }
+                    Map<Long, Float> matches = term.getValue();
+                    float idf = (float) Math.log(1 + (double) productCount / matches.size());
+                    float factor = term.getKey().length() == token.length() ? idf : idf * PREFIX_FACTOR;
+                    matches.forEach((id, weight) -> tokenScores.merge(id, weight * factor, Math::max));
+                }
+
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    scores.replaceAll((id, score) -> score + tokenScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return Hits.NONE;
+                }
+            }
+            return new Hits(top(scores, limit), scores.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The {@code limit} best scores, best first, ties by ascending ID; {@code O(n log limit)} rather than sorting every match.
+     */
+    private static List<Long> top(Map<Long, Float> scores, int limit) {
+        Comparator<Map.Entry<Long, Float>> ranking = Map.Entry.<Long, Float>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey());
+        // Worst kept match at the head
+        PriorityQueue<Map.Entry<Long, Float>> heap = new PriorityQueue<>(ranking.reversed());
+        for (Map.Entry<Long, Float> entry : scores.entrySet()) {
+            if (heap.size() < limit) {
+                heap.add(entry);
+            } else if (limit > 0 && ranking.compare(entry, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+        Long[] ids = new Long[heap.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            ids[i] = heap.poll().getKey();
+        }
+        return List.of(ids);
+    }
+
+    public record Hits(List<Long> ids, int total) {
+
+        static final Hits NONE = new Hits(List.of(), 0);
+    }
+
+    private static void add(TreeMap<String, Map<Long, Float>> postings, Map<Long, Set<String>> termsByProduct,
+                            Product product) {
+        Map<String, Float> weights = new HashMap<>();
+        accumulate(weights, product.getName(), NAME_WEIGHT);
+        accumulate(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+        weights.forEach((term, weight) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(product.getId(), weight));
+        termsByProduct.put(product.getId(), weights.keySet());
+    }
+
+    private static void remove(TreeMap<String, Map<Long, Float>> postings, Map<Long, Set<String>> termsByProduct,
+                               Long productId) {
+        Set<String> terms = termsByProduct.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Long, Float> matches = postings.get(term);
+            matches.remove(productId);
+            if (matches.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    /**
+     * Adds {@code fieldWeight * tf / (tf + 1)} per term, so repeating a word has diminishing returns.
+     */
+    private static void accumulate(Map<String, Float> weights, String text, float fieldWeight) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokenize(text)) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        frequencies.forEach((term, tf) -> weights.merge(term, fieldWeight * tf / (tf + 1f), Float::sum));
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : folded.split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
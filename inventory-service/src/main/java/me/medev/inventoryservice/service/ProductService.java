@@ -0,0 +1,42 @@
+package me.medev.inventoryservice.service;
+
+import lombok.RequiredArgsConstructor;
+import me.medev.inventoryservice.entity.Product;
+import me.medev.inventoryservice.repository.ProductRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+public class ProductService {
+
+    private final ProductRepository productRepository;
+    private final StockService stockService;
+
+    /**
+     * Replaces the product's fields while holding its row lock, so concurrent reservations are
+     * applied either before or after the edit; returns empty if the product does not exist.
+     */
+    @Transactional
+    public Optional<Product> update(Long id, Product details) {
+        stockService.settle(id);
+        Optional<Product> product = productRepository.findByIdForUpdate(id);
+        product.ifPresent(p -> {
+            p.setName(details.getName());
+            p.setDescription(details.getDescription());
+            p.setPrice(details.getPrice());
+            p.setQuantity(details.getQuantity());
+        });
+        return product;
+    }
+
+    @Transactional
+    public boolean delete(Long id) {
+        stockService.settle(id);
+        Optional<Product> product = productRepository.findByIdForUpdate(id);
+        product.ifPresent(productRepository::delete);
+        return product.isPresent();
+    }
+}
@@ -0,0 +1,254 @@
+package me.medev.inventoryservice.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import me.medev.inventoryservice.repository.ProductRepository;
+import me.medev.inventoryservice.repository.StockReservationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reserves stock without read-modify-write races.
+ * <p>
+ * A reservation is a single conditional {@code UPDATE ... WHERE quantity >= n}, so concurrent
+ * callers can neither oversell nor lose each other's updates. SKUs reserved more than
+ * {@code inventory.reservation.hot-threshold} times per window are served from striped
+ * in-memory counters instead: the instance takes a block of units from the row in one update
+ * and hands them out with compare-and-set, so callers of a hot SKU stop queueing on its row
+ * lock. Units left when the SKU cools down, is edited or the instance stops are written back.
+ * Units taken out of the row never exceed the stock, so an instance crash can under-count
+ * stock but never oversell it.
+ * <p>
+ * Callers that may lose the response, such as a client that times out, pass a reservation ID.
+ * The ID is recorded in the transaction that takes the stock. Repeating the reservation then
+ * returns the first outcome. Releasing it gives the stock back once. An ID released before
+ * its reservation arrives is recorded as released, so the late reservation takes nothing.
+ * The caller can therefore always release when it does not know the outcome. IDs are kept
+ * for {@code inventory.reservation.id-retention}.
+ */
+@Slf4j
+@Service
+public class StockService {
+
+    public enum Reservation {
+        RESERVED, INSUFFICIENT_STOCK, NOT_FOUND,
+        /** The reservation ID was released before this reservation arrived. */
+        RELEASED
+    }
+
+    private final ProductRepository productRepository;
+    private final StockReservationRepository reservationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration idRetention;
+    private final int hotThreshold;
+    private final int allotmentSize;
+    private final int stripes;
+
+    // Reservations per product since the last rebalance, for SKUs served from the table
+    private final Map<Long, LongAdder> recentReservations = new ConcurrentHashMap<>();
+    private final Map<Long, Allotment> allotments = new ConcurrentHashMap<>();
+
+    public StockService(ProductRepository productRepository,
+                        StockReservationRepository reservationRepository,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${inventory.reservation.hot-threshold:50}") int hotThreshold,
+                        @Value("${inventory.reservation.allotment-size:20}") int allotmentSize,
+                        @Value("${inventory.reservation.stripes:8}") int stripes,
+                        @Value("${inventory.reservation.id-retention:1d}") Duration idRetention) {
+        this.productRepository = productRepository;
+        this.reservationRepository = reservationRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.idRetention = idRetention;
+        this.hotThreshold = hotThreshold;
+        this.allotmentSize = allotmentSize;
+        this.stripes = stripes;
+    }
+
+    public Reservation reserve(Long productId, int quantity) {
+        Allotment allotment = allotments.get(productId);
+        if (allotment != null && allotment.reserve(quantity)) {
+            return Reservation.RESERVED;
+        }
+
+        recentReservations.computeIfAbsent(productId, id -> new LongAdder()).increment();
+        if (productRepository.decrementQuantity(productId, quantity) == 1) {
+            return Reservation.RESERVED;
+        }
+        if (allotment != null) {
+            // Units may sit in this instance's stripes in amounts too small for the request
+            allotment.drain();
+            if (productRepository.decrementQuantity(productId, quantity) == 1) {
+                return Reservation.RESERVED;
+            }
+        }
+        return productRepository.existsById(productId) ? Reservation.INSUFFICIENT_STOCK : Reservation.NOT_FOUND;
+    }
+
+    /**
+     * Reserves under {@code reservationId}. An ID already recorded returns {@link Reservation#RESERVED}
+     * or {@link Reservation#RELEASED} without taking stock again.
+     */
+    public Reservation reserve(String reservationId, Long productId, int quantity) {
+        return transactionTemplate.execute(status -> {
+            if (reservationRepository.claim(reservationId, productId, quantity) == 0) {
+                return reservationRepository.isReleased(reservationId) ? Reservation.RELEASED : Reservation.RESERVED;
+            }
+            Reservation reservation = reserve(productId, quantity);
+            if (reservation != Reservation.RESERVED) {
+                // Nothing was taken, so a retry with the same ID may try again
+                reservationRepository.delete(reservationId);
+            }
+            return reservation;
+        });
+    }
+
+    /**
+     * Puts {@code quantity} units back; returns {@code false} if the product does not exist.
+     */
+    public boolean release(Long productId, int quantity) {
+        return productRepository.incrementQuantity(productId, quantity) == 1;
+    }
+
+    /**
+     * Puts back the units reserved under {@code reservationId}, at most once. An ID that
+     * reserved nothing is recorded as released and puts nothing back.
+     */
+    public void release(String reservationId, Long productId, int quantity) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Optional<StockReservationRepository.Reserved> reserved = reservationRepository.markReleased(reservationId);
+            if (reserved.isEmpty() && reservationRepository.claimReleased(reservationId, productId, quantity) == 0) {
+                // The insert waited for a reservation committing under the same ID
+                reserved = reservationRepository.markReleased(reservationId);
+            }
+            reserved.ifPresent(units -> release(units.productId(), units.quantity()));
+        });
+    }
+
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.HOURS)
+    public void purgeReservationIds() {
+        int purged = reservationRepository.deleteCreatedBefore(LocalDateTime.now().minus(idRetention));
+        log.debug("Purged {} reservation IDs", purged);
+    }
+
+    /**
+     * Writes back the units this instance holds for the product, so that the row holds its
+     * whole stock before it is edited or deleted.
+     */
+    public void settle(Long productId) {
+        Allotment allotment = allotments.remove(productId);
+        if (allotment != null) {
+            allotment.retire();
+        }
+    }
+
+    /**
+     * Promotes SKUs that became hot to in-memory counters and writes back those that cooled down.
+     */
+    @Scheduled(fixedDelayString = "${inventory.reservation.window:1s}")
+    public void rebalance() {
+        allotments.forEach((productId, allotment) -> {
+            if (allotment.uses.sumThenReset() < hotThreshold && allotments.remove(productId, allotment)) {
+                allotment.retire();
+                log.debug("Product {} no longer served from memory", productId);
+            }
+        });
+        recentReservations.forEach((productId, count) -> {
+            recentReservations.remove(productId);
+            if (count.sum() >= hotThreshold && allotments.putIfAbsent(productId, new Allotment(productId)) == null) {
+                log.debug("Product {} served from memory", productId);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void settleAll() {
+        allotments.keySet().forEach(this::settle);
+    }
+
+    /**
+     * Units taken from one product's row, spread over stripes so that concurrent callers
+     * mostly update different counters.
+     */
+    private final class Allotment {
+
+        private final Long productId;
+        private final AtomicInteger[] counters;
+        private final LongAdder uses = new LongAdder();
+        private boolean retired;
+
+        Allotment(Long productId) {
+            this.productId = productId;
+            this.counters = new AtomicInteger[stripes];
+            for (int i = 0; i < stripes; i++) {
+                counters[i] = new AtomicInteger();
+            }
+        }
+
+        boolean reserve(int quantity) {
+            uses.increment();
+            int home = (int) (Thread.currentThread().getId() % stripes);
+            if (take(home, quantity)) {
+                return true;
+            }
+            synchronized (this) {
+                if (retired) {
+                    return false;
+                }
+                if (take(home, quantity)) {
+                    return true;
+                }
+                int block = Math.max(allotmentSize, quantity);
+                if (productRepository.decrementQuantity(productId, block) != 1) {
+                    return false;
+                }
+                counters[home].addAndGet(block - quantity);
+                return true;
+            }
+        }
+
+        /**
+         * Writes the units held back to the row.
+         */
+        synchronized void drain() {
+            int units = 0;
+            for (AtomicInteger counter : counters) {
+                units += counter.getAndSet(0);
+            }
+            if (units > 0) {
+                productRepository.incrementQuantity(productId, units);
+            }
+        }
+
+        synchronized void retire() {
+            retired = true;
+            drain();
+        }
+
+        // Starts at the caller's own stripe and moves on to the others before giving up
+        private boolean take(int home, int quantity) {
+            for (int i = 0; i < stripes; i++) {
+                AtomicInteger counter = counters[(home + i) % stripes];
+                int units = counter.get();
+                while (units >= quantity) {
+                    if (counter.compareAndSet(units, units - quantity)) {
+                        return true;
+                    }
+                    units = counter.get();
+                }
+            }
+            return false;
+        }
+    }
+}
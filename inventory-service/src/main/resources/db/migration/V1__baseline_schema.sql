@@ -0,0 +1,12 @@
+-- Schema previously created by Hibernate (ddl-auto: update). IF NOT EXISTS keeps this a
+-- no-op on databases that already have it.
+
+CREATE SEQUENCE IF NOT EXISTS products_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS products (
+    id          BIGINT         NOT NULL PRIMARY KEY,
+    name        VARCHAR(255)   NOT NULL,
+    description VARCHAR(255),
+    price       NUMERIC(38, 2) NOT NULL,
+    quantity    INTEGER        NOT NULL
+);
@@ -0,0 +1,2 @@
+-- Installed in public so the operator class is found regardless of the service schema
+CREATE EXTENSION IF NOT EXISTS pg_trgm WITH SCHEMA public;
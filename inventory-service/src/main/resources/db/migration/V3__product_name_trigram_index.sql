@@ -0,0 +1,2 @@
+-- ProductRepository.findByNameContainingIgnoreCase compiles to upper(name) LIKE upper('%x%')
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_products_name_trgm ON products USING gin (upper(name) public.gin_trgm_ops);
@@ -0,0 +1,11 @@
+-- Idempotency keys of stock reservations. A key released before its reservation arrived is
+-- stored as released, so the late reservation does not take stock.
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    id         VARCHAR(64)  NOT NULL PRIMARY KEY,
+    product_id BIGINT       NOT NULL,
+    quantity   INTEGER      NOT NULL,
+    released   BOOLEAN      NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_reservations_created_at ON stock_reservations (created_at);
@@ -0,0 +1,69 @@
+package me.medev.inventoryservice.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Checks that the query behind {@link ProductRepository#findByNameContainingIgnoreCase} is
+ * planned on the trigram index from the migrations. Runs the migrations against an embedded
+ * Postgres, fills the table with enough rows for the index to pay off and compares the
+ * {@code EXPLAIN} output.
+ */
+class HotPathQueryPlanTest {
+
+    private static final String SCHEMA = "inventory_schema";
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void migrateAndSeed() throws IOException {
+        assumeFalse("root".equals(System.getProperty("user.name")), "Postgres refuses to run as root");
+        postgres = EmbeddedPostgres.start();
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .defaultSchema(SCHEMA)
+                .schemas(SCHEMA)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        DataSource dataSource = postgres.getDatabase("postgres", "postgres", Map.of("currentSchema", SCHEMA));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        jdbcTemplate.update("""
+                INSERT INTO products (id, name, description, price, quantity)
+                SELECT i, 'Product ' || md5(i::text), 'description', 9.99, 100
+                FROM generate_series(1, 100000) AS i""");
+        jdbcTemplate.execute("ANALYZE products");
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    void substringSearchUsesTrigramIndex() {
+        // md5('42') = a1d0c6e83f027327d8461063f4ac58a6
+        assertThat(plan("SELECT * FROM products WHERE upper(name) LIKE upper('%1d0c6e83%')"))
+                .contains("idx_products_name_trgm")
+                .doesNotContain("Seq Scan");
+    }
+
+    private static String plan(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+    }
+}
@@ -0,0 +1,105 @@
+package me.medev.inventoryservice.search;
+
+import me.medev.inventoryservice.entity.Product;
+import me.medev.inventoryservice.repository.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ranked search over a synthetic catalogue of 100k products, names of three and descriptions of
+ * twelve words drawn with a skew from a 5k-word vocabulary, so a few words match most of the
+ * catalogue. {@code limit} is 20 for the first page of the search endpoint; {@code 2147483647}
+ * ranks every match, as the index did before it kept a bounded heap. The query shapes are two
+ * letters, below the minimum prefix length and so matched exactly, three letters reaching 26
+ * common terms, a common word and two words. Every word starts with "wa" to "wh", so as a
+ * prefix "wa" would reach 676 terms and nearly every product.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn -pl inventory-service test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *   -Dexec.args="-cp %classpath org.openjdk.jmh.Main ProductSearchBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ProductSearchBenchmark {
+
+    private static final int PRODUCTS = 100_000;
+    private static final int VOCABULARY = 5_000;
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    @Param({"wa", "wab", "wabe", "wabe wade"})
+    public String query;
+
+    @Param({"20", "2147483647"})
+    public int limit;
+
+    private ProductSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = word(i);
+        }
+        // Never queried: the repository is only read by rebuild()
+        ProductRepository productRepository = (ProductRepository) Proxy.newProxyInstance(
+                ProductRepository.class.getClassLoader(), new Class<?>[]{ProductRepository.class},
+                (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        PlatformTransactionManager transactionManager = (PlatformTransactionManager) Proxy.newProxyInstance(
+                PlatformTransactionManager.class.getClassLoader(), new Class<?>[]{PlatformTransactionManager.class},
+                (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        index = new ProductSearchIndex(productRepository, transactionManager);
+        for (long id = 1; id <= PRODUCTS; id++) {
+            index.index(new Product(id, text(words, random, 3), text(words, random, 12), BigDecimal.TEN, 1));
+        }
+    }
+
+    @Benchmark
+    public ProductSearchIndex.Hits search() {
+        return index.search(query, limit);
+    }
+
+    /**
+     * Squaring a uniform draw skews towards the first words.
+     */
+    private static String text(String[] words, Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            double skewed = random.nextDouble();
+            text.append(words[(int) (skewed * skewed * words.length)]).append(' ');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Distinct four-letter words starting with "w"; the 676 most common ones start with "wa".
+     */
+    private static String word(int i) {
+        return "w" + LETTERS.charAt(i / (26 * 26)) + LETTERS.charAt(i / 26 % 26) + LETTERS.charAt(i % 26);
+    }
+}
@@ -0,0 +1,122 @@
+package me.medev.inventoryservice.search;
+
+import me.medev.inventoryservice.entity.Product;
+import me.medev.inventoryservice.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductSearchIndexTest {
+
+    private ProductRepository productRepository;
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        index = new ProductSearchIndex(productRepository, mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void tokenizeFoldsCaseAndAccentsAndSplitsOnPunctuation() {
+        assertThat(ProductSearchIndex.tokenize("Café-Crème  2x,USB-C")).containsExactly("cafe", "creme", "2x", "usb", "c");
+        assertThat(ProductSearchIndex.tokenize("  ")).isEmpty();
+        assertThat(ProductSearchIndex.tokenize(null)).isEmpty();
+    }
+
+    @Test
+    void everyTokenMustMatchATermOrAPrefixOfOne() {
+        index.index(product(1, "Wireless Mouse", "Ergonomic"));
+        index.index(product(2, "Wireless Keyboard", "Mechanical"));
+        index.index(product(3, "Mouse Pad", null));
+
+        assertThat(index.search("wire mou", 10).ids()).containsExactly(1L);
+        assertThat(index.search("MOUSE", 10).ids()).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(index.search("mouse trackball", 10)).isEqualTo(new ProductSearchIndex.Hits(List.of(), 0));
+    }
+
+    @Test
+    void tokensShorterThanTheMinimumPrefixOnlyMatchExactly() {
+        index.index(product(1, "C cable", null));
+        index.index(product(2, "Charger", null));
+        index.index(product(3, "CH adapter", null));
+
+        assertThat(index.search("c", 10).ids()).containsExactly(1L);
+        assertThat(index.search("ch", 10).ids()).containsExactly(3L);
+        assertThat(index.search("cha", 10).ids()).containsExactly(2L);
+    }
+
+    @Test
+    void nameOutranksDescription() {
+        index.index(product(1, "Lamp", "A desk lamp with a USB charger"));
+        index.index(product(2, "Charger", "For phones"));
+
+        assertThat(index.search("charger", 10).ids()).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void exactMatchOutranksPrefixMatch() {
+        index.index(product(1, "Chargers", "Pack of two"));
+        index.index(product(2, "Charger", "For phones"));
+
+        assertThat(index.search("charger", 10).ids()).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void searchRanksOnlyUpToTheLimitButCountsEveryMatch() {
+        for (long id = 1; id <= 50; id++) {
+            // Repeating the word raises the score, so higher IDs rank first
+            index.index(product(id, "Cable", "cable ".repeat((int) id)));
+        }
+        index.index(product(51, "Adapter", null));
+
+        ProductSearchIndex.Hits hits = index.search("cable", 5);
+
+        assertThat(hits.total()).isEqualTo(50);
+        assertThat(hits.ids()).containsExactly(50L, 49L, 48L, 47L, 46L);
+        assertThat(index.search("cable", 0).ids()).isEmpty();
+    }
+
+    @Test
+    void equalScoresRankByAscendingId() {
+        for (long id = 9; id >= 1; id--) {
+            index.index(product(id, "Cable", null));
+        }
+
+        assertThat(index.search("cable", 3).ids()).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void rebuildReplaysWritesMadeWhileItReadsTheTable() {
+        index.index(product(1, "Old Name", null));
+        when(productRepository.streamAllOrderById()).thenAnswer(invocation -> {
+            // Written through the controller after the rebuild started reading
+            index.index(product(1, "Renamed Kettle", null));
+            index.index(product(3, "Toaster", null));
+            index.remove(2L);
+            return List.of(product(1, "Old Name", null), product(2, "Blender", null)).stream();
+        });
+
+        index.rebuild();
+
+        assertThat(index.search("kettle", 10).ids()).containsExactly(1L);
+        assertThat(index.search("old", 10).ids()).isEmpty();
+        assertThat(index.search("blender", 10).ids()).isEmpty();
+        assertThat(index.search("toaster", 10).ids()).containsExactly(3L);
+
+        // The journal only runs during a rebuild
+        index.index(product(4, "Grill", null));
+        assertThat(index.search("grill", 10).ids()).containsExactly(4L);
+    }
+
+    private static Product product(long id, String name, String description) {
+        return new Product(id, name, description, BigDecimal.TEN, 1);
+    }
+}
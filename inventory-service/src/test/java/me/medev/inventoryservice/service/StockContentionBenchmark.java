@@ -0,0 +1,137 @@
+package me.medev.inventoryservice.service;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import me.medev.inventoryservice.repository.ProductRepository;
+import me.medev.inventoryservice.repository.StockReservationRepository;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Many threads reserving one SKU through {@link StockService} against an embedded Postgres
+ * with the inventory schema. {@code row} keeps the SKU below the hot threshold, so every
+ * reservation is a conditional update of its row; {@code striped} promotes it to in-memory
+ * counters first. {@code keyed} reserves under a fresh reservation ID, as billing-service
+ * does, which adds an insert into the ID table to every reservation.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn -pl inventory-service test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *   -Dexec.args="-cp %classpath org.openjdk.jmh.Main StockContentionBenchmark"
+ * </pre>
+ * Postgres refuses to run as root, so run it as an ordinary user.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@Threads(8)
+public class StockContentionBenchmark {
+
+    private static final String SCHEMA = "inventory_schema";
+    private static final long PRODUCT_ID = 1;
+    private static final int STOCK = 1_000_000_000;
+    // One connection per benchmark thread
+    private static final int POOL_SIZE = 8;
+
+    @Param({"row", "striped"})
+    public String mode;
+
+    @Param({"false", "true"})
+    public boolean keyed;
+
+    private EmbeddedPostgres postgres;
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private StockService stockService;
+    private final AtomicLong reservationIds = new AtomicLong();
+
+    @Setup
+    public void setUp() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        // As in the service: a transactional lock would block CREATE INDEX CONCURRENTLY
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .defaultSchema(SCHEMA)
+                .schemas(SCHEMA)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        HikariConfig config = new HikariConfig();
+        config.setDataSource(postgres.getDatabase("postgres", "postgres", Map.of("currentSchema", SCHEMA)));
+        config.setMaximumPoolSize(POOL_SIZE);
+        dataSource = new HikariDataSource(config);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO products (id, name, price, quantity) VALUES (?, 'Hot SKU', 9.99, ?)",
+                PRODUCT_ID, STOCK);
+
+        int hotThreshold = "striped".equals(mode) ? 1 : Integer.MAX_VALUE;
+        stockService = new StockService(productRepository(jdbcTemplate), new StockReservationRepository(jdbcTemplate),
+                new DataSourceTransactionManager(dataSource), hotThreshold, 20, 8, Duration.ofDays(1));
+    }
+
+    @Setup(Level.Iteration)
+    public void restock() {
+        stockService.settleAll();
+        jdbcTemplate.update("UPDATE products SET quantity = ? WHERE id = ?", STOCK, PRODUCT_ID);
+        jdbcTemplate.execute("TRUNCATE stock_reservations");
+        // One reservation in the window is enough to promote the SKU at a threshold of 1
+        stockService.reserve(PRODUCT_ID, 1);
+        stockService.rebalance();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        dataSource.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public StockService.Reservation reserve() {
+        return keyed
+                ? stockService.reserve("benchmark-" + reservationIds.incrementAndGet(), PRODUCT_ID, 1)
+                : stockService.reserve(PRODUCT_ID, 1);
+    }
+
+    /**
+     * The three repository methods {@link StockService} calls, as the queries Spring Data derives from them.
+     */
+    private static ProductRepository productRepository(JdbcTemplate jdbcTemplate) {
+        return (ProductRepository) Proxy.newProxyInstance(ProductRepository.class.getClassLoader(),
+                new Class<?>[]{ProductRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "decrementQuantity" -> jdbcTemplate.update(
+                            "UPDATE products SET quantity = quantity - ? WHERE id = ? AND quantity >= ?",
+                            args[1], args[0], args[1]);
+                    case "incrementQuantity" -> jdbcTemplate.update(
+                            "UPDATE products SET quantity = quantity + ? WHERE id = ?", args[1], args[0]);
+                    case "existsById" -> jdbcTemplate.queryForObject(
+                            "SELECT EXISTS (SELECT 1 FROM products WHERE id = ?)", Boolean.class, args[0]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}